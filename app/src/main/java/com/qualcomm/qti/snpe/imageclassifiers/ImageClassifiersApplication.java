@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers;
+
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+
+import com.qualcomm.qti.snpe.imageclassifiers.inference.BitmapCache;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.ImagePreprocessor;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.InferenceScheduler;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.NetworkCache;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.ResultCache;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.MeanImageCache;
+
+import java.io.File;
+
+public class ImageClassifiersApplication extends Application {
+
+    private static final String MODEL_CATALOGUE_FILE_NAME = "model_catalogue.json";
+
+    private NetworkCache mNetworkCache;
+
+    private InferenceScheduler mInferenceScheduler;
+
+    private BitmapCache mBitmapCache;
+
+    private ResultCache mResultCache;
+
+    private ModelCatalogue mModelCatalogue;
+
+    public static ImageClassifiersApplication from(Application application) {
+        return (ImageClassifiersApplication) application;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        mNetworkCache = new NetworkCache();
+        mInferenceScheduler = new InferenceScheduler();
+        mBitmapCache = new BitmapCache();
+        mResultCache = new ResultCache();
+        mModelCatalogue = new ModelCatalogue(new File(getFilesDir(), MODEL_CATALOGUE_FILE_NAME));
+    }
+
+    public NetworkCache getNetworkCache() {
+        return mNetworkCache;
+    }
+
+    public InferenceScheduler getInferenceScheduler() {
+        return mInferenceScheduler;
+    }
+
+    public BitmapCache getBitmapCache() {
+        return mBitmapCache;
+    }
+
+    public ResultCache getResultCache() {
+        return mResultCache;
+    }
+
+    public ModelCatalogue getModelCatalogue() {
+        return mModelCatalogue;
+    }
+
+    /**
+     * Returns the model with the given name, e.g. when a fragment is restored.
+     *
+     * @return null if there is no such model.
+     */
+    public Model getModel(String name) {
+        final File modelsRoot = getExternalFilesDir(ModelExtractionService.MODELS_ROOT_DIR);
+        if (modelsRoot == null || name == null) {
+            return null;
+        }
+        return mModelCatalogue.get(new File(modelsRoot, name));
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        mBitmapCache.trim(level);
+        mResultCache.trim(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            mNetworkCache.trim();
+            ImagePreprocessor.getInstance().trim();
+            MeanImageCache.getInstance().clear();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        mBitmapCache.trim(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        mResultCache.trim(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers;
+
+import android.util.Log;
+
+import com.qualcomm.qti.snpe.imageclassifiers.processing.ModelArchiveExtractor;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the model directories, persisted across process restarts, and the
+ * registry of the {@link Model} instances shared within the process.
+ *
+ * Every model directory is indexed with a stamp made of the modification time and
+ * size of the directory, its images directory and its model files. A load only
+ * rescans the directories whose stamp changed, so unchanged models cost a few
+ * file system stats each.
+ */
+public class ModelCatalogue {
+
+    public static final String MODEL_DLC_FILE_NAME = "model.dlc";
+    public static final String MODEL_MEAN_IMAGE_FILE_NAME = "mean_image.bin";
+    public static final String LABELS_FILE_NAME = "labels.txt";
+    public static final String IMAGES_FOLDER_NAME = "images";
+    public static final String RAW_EXT = ".raw";
+    public static final String JPG_EXT = ".jpg";
+
+    private static final String LOG_TAG = ModelCatalogue.class.getSimpleName();
+
+    private static final int INDEX_VERSION = 1;
+
+    private static final String[] STAMPED_FILES = {
+        IMAGES_FOLDER_NAME, MODEL_DLC_FILE_NAME, LABELS_FILE_NAME, MODEL_MEAN_IMAGE_FILE_NAME
+    };
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mIndexFile;
+
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    private boolean mIndexRead;
+
+    /**
+     * @param indexFile where the index is persisted.
+     */
+    public ModelCatalogue(File indexFile) {
+        mIndexFile = indexFile;
+    }
+
+    /**
+     * Returns the models found in the model directories under {@code modelsRoot},
+     * rescanning only the directories that changed since they were last indexed.
+     * Directories without a labels file are not models.
+     */
+    public synchronized Set<Model> load(File modelsRoot) {
+        if (!mIndexRead) {
+            readIndex();
+            mIndexRead = true;
+        }
+
+        final Set<Model> models = new LinkedHashSet<>();
+        final File[] children = modelsRoot.listFiles();
+        if (children == null) {
+            return models;
+        }
+
+        final Set<String> found = new HashSet<>();
+        boolean changed = false;
+        for (File child : children) {
+            if (!child.isDirectory()
+                || child.getName().startsWith(ModelArchiveExtractor.TEMP_PREFIX)) {
+                continue;
+            }
+            final String key = child.getAbsolutePath();
+            final String stamp = stampOf(child);
+            Entry entry = mEntries.get(key);
+            if (entry == null || !entry.stamp.equals(stamp)) {
+                entry = scan(child, stamp);
+                mEntries.put(key, entry);
+                changed = true;
+            }
+            found.add(key);
+            if (entry.model != null) {
+                models.add(entry.model);
+            }
+        }
+        changed |= mEntries.keySet().retainAll(found);
+        if (changed) {
+            writeIndex();
+        }
+        return models;
+    }
+
+    /**
+     * Returns the model of the given directory, rescanning it only if it changed
+     * since it was last indexed. Reads the file system and waits for any load in
+     * progress, so it is not for the main thread.
+     *
+     * @return null if the directory is not a model.
+     */
+    public synchronized Model get(File modelDir) {
+        if (!mIndexRead) {
+            readIndex();
+            mIndexRead = true;
+        }
+
+        final String key = modelDir.getAbsolutePath();
+        if (!modelDir.isDirectory()) {
+            if (mEntries.remove(key) != null) {
+                writeIndex();
+            }
+            return null;
+        }
+        final String stamp = stampOf(modelDir);
+        Entry entry = mEntries.get(key);
+        if (entry == null || !entry.stamp.equals(stamp)) {
+            entry = scan(modelDir, stamp);
+            mEntries.put(key, entry);
+            writeIndex();
+        }
+        return entry.model;
+    }
+
+    private static String stampOf(File modelDir) {
+        final StringBuilder stamp = new StringBuilder();
+        stamp.append(modelDir.lastModified());
+        for (String name : STAMPED_FILES) {
+            final File file = new File(modelDir, name);
+            stamp.append(',').append(file.lastModified()).append(':').append(file.length());
+        }
+        return stamp.toString();
+    }
+
+    /**
+     * Lists the model images in a single pass.
+     */
+    private static Entry scan(File modelDir, String stamp) {
+        if (!new File(modelDir, LABELS_FILE_NAME).isFile()) {
+            return new Entry(stamp, null, null, null);
+        }
+        final List<String> rawImages = new ArrayList<>();
+        final List<String> jpgImages = new ArrayList<>();
+        final String[] images = new File(modelDir, IMAGES_FOLDER_NAME).list();
+        if (images != null) {
+            for (String image : images) {
+                if (image.endsWith(RAW_EXT)) {
+                    rawImages.add(image);
+                } else if (image.endsWith(JPG_EXT)) {
+                    jpgImages.add(image);
+                }
+            }
+        }
+        return new Entry(stamp, modelDir, rawImages, jpgImages);
+    }
+
+    private void readIndex() {
+        if (!mIndexFile.isFile()) {
+            return;
+        }
+        try {
+            final JSONObject index = new JSONObject(readText(mIndexFile));
+            if (index.optInt("version") != INDEX_VERSION) {
+                return;
+            }
+            final JSONArray models = index.getJSONArray("models");
+            for (int i = 0; i < models.length(); i++) {
+                final JSONObject model = models.getJSONObject(i);
+                final File modelDir = new File(model.getString("dir"));
+                mEntries.put(modelDir.getAbsolutePath(), new Entry(model.getString("stamp"),
+                    modelDir, toList(model.getJSONArray("raw")),
+                    toList(model.getJSONArray("jpg"))));
+            }
+        } catch (IOException | JSONException e) {
+            Log.w(LOG_TAG, "Discarding model index: " + e.getMessage());
+            mEntries.clear();
+        }
+    }
+
+    private void writeIndex() {
+        try {
+            final JSONArray models = new JSONArray();
+            for (Entry entry : mEntries.values()) {
+                if (entry.model == null) {
+                    continue;
+                }
+                final JSONObject model = new JSONObject();
+                model.put("dir", entry.modelDir.getAbsolutePath());
+                model.put("stamp", entry.stamp);
+                model.put("raw", toArray(entry.rawImages));
+                model.put("jpg", toArray(entry.jpgImages));
+                models.put(model);
+            }
+            final JSONObject index = new JSONObject();
+            index.put("version", INDEX_VERSION);
+            index.put("models", models);
+
+            final File temp = new File(mIndexFile.getPath() + ".tmp");
+            final FileOutputStream outputStream = new FileOutputStream(temp);
+            try {
+                outputStream.write(index.toString().getBytes(UTF_8));
+            } finally {
+                outputStream.close();
+            }
+            if (!temp.renameTo(mIndexFile)) {
+                throw new IOException("Can not rename " + temp + " to " + mIndexFile);
+            }
+        } catch (IOException | JSONException e) {
+            Log.e(LOG_TAG, "Failed to write model index.", e);
+        }
+    }
+
+    private static String readText(File file) throws IOException {
+        final InputStream inputStream = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+            final byte[] chunk = new byte[8 * 1024];
+            int read;
+            while ((read = inputStream.read(chunk)) != -1) {
+                bytes.write(chunk, 0, read);
+            }
+            return new String(bytes.toByteArray(), UTF_8);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static List<String> toList(JSONArray array) throws JSONException {
+        final List<String> list = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            list.add(array.getString(i));
+        }
+        return list;
+    }
+
+    private static JSONArray toArray(List<String> list) {
+        final JSONArray array = new JSONArray();
+        for (String value : list) {
+            array.put(value);
+        }
+        return array;
+    }
+
+    private static final class Entry {
+        final String stamp;
+        final File modelDir;
+        final List<String> rawImages;
+        final List<String> jpgImages;
+        final Model model;
+
+        /**
+         * @param modelDir null if the directory is not a model.
+         */
+        Entry(String stamp, File modelDir, List<String> rawImages, List<String> jpgImages) {
+            this.stamp = stamp;
+            this.modelDir = modelDir;
+            this.rawImages = rawImages;
+            this.jpgImages = jpgImages;
+            this.model = (modelDir != null) ? createModel(modelDir, rawImages, jpgImages) : null;
+        }
+    }
+
+    private static Model createModel(File modelDir, List<String> rawImages,
+                                     List<String> jpgImages) {
+        final Model model = new Model();
+        model.name = modelDir.getName();
+        model.file = new File(modelDir, MODEL_DLC_FILE_NAME);
+        model.meanImage = new File(modelDir, MODEL_MEAN_IMAGE_FILE_NAME);
+        model.labelsFile = new File(modelDir, LABELS_FILE_NAME);
+        final File images = new File(modelDir, IMAGES_FOLDER_NAME);
+        model.rawImages = toFiles(images, rawImages);
+        model.jpgImages = toFiles(images, jpgImages);
+        return model;
+    }
+
+    private static File[] toFiles(File directory, List<String> names) {
+        final File[] files = new File[names.size()];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = new File(directory, names.get(i));
+        }
+        return files;
+    }
+}
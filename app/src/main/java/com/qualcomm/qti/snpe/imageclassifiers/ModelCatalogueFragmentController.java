@@ -14,15 +14,19 @@ import android.os.Handler;
 
 import com.qualcomm.qti.snpe.imageclassifiers.tasks.LoadModelsTask;
 
+import java.io.File;
 import java.util.Set;
 
 public class ModelCatalogueFragmentController extends
-    AbstractViewController<ModelCatalogueFragment> {
+    AbstractViewController<ModelCatalogueFragment> implements ModelDirectoryWatcher.Listener {
 
     private final Context mContext;
 
+    private final ModelDirectoryWatcher mDirectoryWatcher;
+
     public ModelCatalogueFragmentController(Context context) {
         mContext = context;
+        mDirectoryWatcher = new ModelDirectoryWatcher(this);
     }
 
     @Override
@@ -48,6 +52,14 @@ public class ModelCatalogueFragmentController extends
         final ContentResolver contentResolver = mContext.getContentResolver();
         contentResolver.unregisterContentObserver(mModelExtractionObserver);
         contentResolver.unregisterContentObserver(mModelExtractionFailedObserver);
+        mDirectoryWatcher.stop();
+    }
+
+    @Override
+    public void onModelDirectoriesChanged() {
+        if (isAttached()) {
+            loadModels();
+        }
     }
 
     private final ContentObserver mModelExtractionObserver =
@@ -79,6 +91,11 @@ public class ModelCatalogueFragmentController extends
     public void onModelsLoaded(final Set<Model> models) {
         if (isAttached()) {
             getView().displayModels(models);
+            final File modelsRoot =
+                mContext.getExternalFilesDir(ModelExtractionService.MODELS_ROOT_DIR);
+            if (modelsRoot != null) {
+                mDirectoryWatcher.watch(modelsRoot, models);
+            }
         }
     }
 
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers;
+
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Watches the models root, every model directory and their images directories,
+ * and reports changes on the main thread. Bursts of events, e.g. while a model is
+ * being extracted, are reported once.
+ */
+public class ModelDirectoryWatcher {
+
+    public interface Listener {
+        void onModelDirectoriesChanged();
+    }
+
+    private static final long SETTLE_DELAY_MS = 500;
+
+    private static final int EVENTS = FileObserver.CREATE | FileObserver.DELETE
+        | FileObserver.MOVED_FROM | FileObserver.MOVED_TO | FileObserver.CLOSE_WRITE;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final Listener mListener;
+
+    private final List<FileObserver> mObservers = new ArrayList<>();
+
+    private final Runnable mNotifyChanged = new Runnable() {
+        @Override
+        public void run() {
+            mListener.onModelDirectoriesChanged();
+        }
+    };
+
+    public ModelDirectoryWatcher(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Replaces the watched directories with the models root and the directories of
+     * the given models. Must be called on the main thread.
+     */
+    public void watch(File modelsRoot, Collection<Model> models) {
+        stop();
+        add(modelsRoot);
+        for (Model model : models) {
+            final File modelDir = model.file.getParentFile();
+            add(modelDir);
+            add(new File(modelDir, ModelCatalogue.IMAGES_FOLDER_NAME));
+        }
+    }
+
+    public void stop() {
+        for (FileObserver observer : mObservers) {
+            observer.stopWatching();
+        }
+        mObservers.clear();
+        mHandler.removeCallbacks(mNotifyChanged);
+    }
+
+    private void add(File directory) {
+        if (!directory.isDirectory()) {
+            return;
+        }
+        final FileObserver observer = new FileObserver(directory.getAbsolutePath(), EVENTS) {
+            @Override
+            public void onEvent(int event, String path) {
+                mHandler.removeCallbacks(mNotifyChanged);
+                mHandler.postDelayed(mNotifyChanged, SETTLE_DELAY_MS);
+            }
+        };
+        observer.startWatching();
+        mObservers.add(observer);
+    }
+}
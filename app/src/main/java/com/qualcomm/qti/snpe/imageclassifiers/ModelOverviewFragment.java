@@ -9,6 +9,7 @@ import android.app.Application;
 import android.app.Fragment;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.MenuInflater;
@@ -25,15 +26,20 @@ import android.widget.Toast;
 
 import com.qualcomm.qti.snpe.NeuralNetwork;
 import com.qualcomm.qti.snpe.SNPE;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.EnsembleClassifier;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.StreamingClassifier;
+import com.qualcomm.qti.snpe.imageclassifiers.tasks.LoadModelTask;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class ModelOverviewFragment extends Fragment {
 
-    public static final String EXTRA_MODEL = "model";
+    public static final String EXTRA_MODEL_NAME = "model_name";
 
     enum MenuRuntimeGroup {
 
@@ -50,6 +56,27 @@ public class ModelOverviewFragment extends Fragment {
         }
     }
 
+    enum MenuActionGroup {
+
+        AutomaticRuntime(R.string.automatic_runtime),
+        ClassifyAll(R.string.classify_all),
+        ClassifyRaw(R.string.classify_raw),
+        Ensemble(R.string.ensemble),
+        EnsembleFusion(R.string.ensemble_fusion),
+        EnsembleWeight(R.string.ensemble_weight),
+        StreamSamples(R.string.stream_samples),
+        TopK(R.string.top_k),
+        WarmUpRuns(R.string.warm_up_runs);
+
+        public static int ID = 2;
+
+        public int title;
+
+        MenuActionGroup(int title) {
+            this.title = title;
+        }
+    }
+
     private GridView mImageGrid;
 
     private ModelImagesAdapter mImageGridAdapter;
@@ -66,10 +93,14 @@ public class ModelOverviewFragment extends Fragment {
 
     private TextView mModelVersionText;
 
+    private TextView mStreamStatsText;
+
+    private boolean mStarted;
+
     public static ModelOverviewFragment create(final Model model) {
         final ModelOverviewFragment fragment = new ModelOverviewFragment();
         final Bundle arguments = new Bundle();
-        arguments.putParcelable(EXTRA_MODEL, model);
+        arguments.putString(EXTRA_MODEL_NAME, model.name);
         fragment.setArguments(arguments);
         return fragment;
     }
@@ -98,15 +129,37 @@ public class ModelOverviewFragment extends Fragment {
         mDimensionsText = (TextView) view.findViewById(R.id.model_overview_dimensions_text);
         mOutputLayersSpinners = (Spinner) view.findViewById(R.id.model_overview_layers_spinner);
         mClassificationText = (TextView) view.findViewById(R.id.model_overview_classification_text);
+        mStreamStatsText = (TextView) view.findViewById(R.id.model_overview_stream_stats_text);
     }
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
+        final Application application = (Application) getActivity().getApplicationContext();
+        new LoadModelTask(application, this, getArguments().getString(EXTRA_MODEL_NAME))
+            .executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Creates the controller once the model is resolved, off the main thread.
+     *
+     * @param model null if there is no such model.
+     */
+    public void onModelLoaded(Model model) {
+        if (!isAdded() || mController != null) {
+            return;
+        }
+        if (model == null) {
+            Toast.makeText(getActivity(), R.string.model_not_found, Toast.LENGTH_SHORT).show();
+            getFragmentManager().popBackStack();
+            return;
+        }
         setHasOptionsMenu(true);
-        final Model model = getArguments().getParcelable(EXTRA_MODEL);
         mController = new ModelOverviewFragmentController(
-                (Application) getActivity().getApplicationContext(), model);
+            (Application) getActivity().getApplicationContext(), model);
+        if (mStarted) {
+            mController.attach(this);
+        }
     }
 
     @Override
@@ -119,6 +172,9 @@ public class ModelOverviewFragment extends Fragment {
                 menu.add(MenuRuntimeGroup.ID, item.ordinal(), 0, item.runtime.name());
             }
         }
+        for (MenuActionGroup item : MenuActionGroup.values()) {
+            menu.add(MenuActionGroup.ID, item.ordinal(), 0, item.title);
+        }
     }
 
     @Override
@@ -126,6 +182,36 @@ public class ModelOverviewFragment extends Fragment {
         if (item.getGroupId() == MenuRuntimeGroup.ID) {
             final MenuRuntimeGroup option = MenuRuntimeGroup.values()[item.getItemId()];
             mController.setTargetRuntime(option.runtime);
+        } else if (item.getGroupId() == MenuActionGroup.ID) {
+            switch (MenuActionGroup.values()[item.getItemId()]) {
+                case AutomaticRuntime:
+                    mController.setAutomaticRuntime();
+                    break;
+                case ClassifyAll:
+                    mController.classifyAll();
+                    break;
+                case ClassifyRaw:
+                    mController.classifyRaw();
+                    break;
+                case Ensemble:
+                    mController.toggleEnsemble();
+                    break;
+                case EnsembleFusion:
+                    mController.toggleFusion();
+                    break;
+                case EnsembleWeight:
+                    mController.nextEnsembleWeight();
+                    break;
+                case StreamSamples:
+                    mController.toggleStreaming();
+                    break;
+                case TopK:
+                    mController.nextTopK();
+                    break;
+                case WarmUpRuns:
+                    mController.nextWarmUpRuns();
+                    break;
+            }
         }
         return super.onOptionsItemSelected(item);
     }
@@ -133,12 +219,18 @@ public class ModelOverviewFragment extends Fragment {
     @Override
     public void onStart() {
         super.onStart();
-        mController.attach(this);
+        mStarted = true;
+        if (mController != null) {
+            mController.attach(this);
+        }
     }
 
     @Override
     public void onStop() {
-        mController.detach(this);
+        mStarted = false;
+        if (mController != null) {
+            mController.detach(this);
+        }
         super.onStop();
     }
 
@@ -175,12 +267,104 @@ public class ModelOverviewFragment extends Fragment {
 
     public void setClassificationResult(String[] classificationResult) {
         if (classificationResult.length > 0) {
-            mClassificationText.setText(
-                    String.format("%s: %s", classificationResult[0], classificationResult[1]));
+            final StringBuilder text = new StringBuilder();
+            for (int i = 0; i + 1 < classificationResult.length; i += 2) {
+                if (i > 0) {
+                    text.append('\n');
+                }
+                text.append(String.format("%s: %s",
+                    classificationResult[i], classificationResult[i + 1]));
+            }
+            mClassificationText.setText(text);
         }
         mClassificationText.setVisibility(View.VISIBLE);
     }
 
+    public void setBatchClassificationResult(File[] images, List<String[]> results) {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < images.length && i < results.size(); i++) {
+            final String[] result = results.get(i);
+            if (i > 0) {
+                text.append('\n');
+            }
+            if (result.length > 1) {
+                text.append(images[i].getName()).append(':');
+                for (int k = 0; k + 1 < result.length; k += 2) {
+                    text.append(String.format(k > 0 ? ", %s (%s)" : " %s (%s)",
+                        result[k], result[k + 1]));
+                }
+            } else {
+                text.append(String.format("%s: %s", images[i].getName(),
+                    getString(R.string.classification_failed)));
+            }
+        }
+        mClassificationText.setText(text);
+        mClassificationText.setVisibility(View.VISIBLE);
+    }
+
+    public void setEnsembleResult(EnsembleClassifier.Result result) {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i + 1 < result.labels.length; i += 2) {
+            text.append(String.format("%s: %s\n", result.labels[i], result.labels[i + 1]));
+        }
+        for (Map.Entry<String, Long> model : result.modelLatencyNanos.entrySet()) {
+            if (model.getValue() >= 0) {
+                text.append(getString(R.string.ensemble_model_latency,
+                    model.getKey(), model.getValue() / 1e6));
+            } else {
+                text.append(getString(R.string.ensemble_model_failed, model.getKey()));
+            }
+            text.append('\n');
+        }
+        text.append(getString(R.string.ensemble_total_latency, result.totalLatencyNanos / 1e6));
+        mClassificationText.setText(text);
+        mClassificationText.setVisibility(View.VISIBLE);
+    }
+
+    public void displayEnsembleEnabled(boolean enabled) {
+        Toast.makeText(getActivity(), enabled ? R.string.ensemble_enabled
+            : R.string.ensemble_disabled, Toast.LENGTH_SHORT).show();
+    }
+
+    public void displayFusion(EnsembleClassifier.Fusion fusion) {
+        final int message;
+        switch (fusion) {
+            case MAX:
+                message = R.string.ensemble_fusion_max;
+                break;
+            case WEIGHTED:
+                message = R.string.ensemble_fusion_weighted;
+                break;
+            default:
+                message = R.string.ensemble_fusion_average;
+                break;
+        }
+        Toast.makeText(getActivity(), message, Toast.LENGTH_SHORT).show();
+    }
+
+    public void displayEnsembleWeight(String modelName, float weight) {
+        Toast.makeText(getActivity(), getString(R.string.ensemble_weight_set, modelName, weight),
+            Toast.LENGTH_SHORT).show();
+    }
+
+    public void displayTopK(int topK) {
+        Toast.makeText(getActivity(), getString(R.string.top_k_set, topK),
+            Toast.LENGTH_SHORT).show();
+    }
+
+    public void displayWarmUpRuns(int runs) {
+        Toast.makeText(getActivity(), getString(R.string.warm_up_runs_set, runs),
+            Toast.LENGTH_SHORT).show();
+    }
+
+    public void setStreamingStats(StreamingClassifier.Stats stats) {
+        if (stats != null) {
+            mStreamStatsText.setText(getString(R.string.stream_stats,
+                stats.framesPerSecond, stats.getDropRate() * 100));
+        }
+        mStreamStatsText.setVisibility(stats != null ? View.VISIBLE : View.GONE);
+    }
+
     public void setLoadingVisible(boolean visible) {
         mClassificationText.setVisibility(visible ? View.VISIBLE : View.GONE);
         if (visible) {
@@ -192,6 +376,10 @@ public class ModelOverviewFragment extends Fragment {
         Toast.makeText(getActivity(), R.string.model_not_loaded, Toast.LENGTH_SHORT).show();
     }
 
+    public void displayNoRawImages() {
+        Toast.makeText(getActivity(), R.string.no_raw_images, Toast.LENGTH_SHORT).show();
+    }
+
     public void displayClassificationFailed() {
         Toast.makeText(getActivity(), R.string.classification_failed, Toast.LENGTH_SHORT).show();
     }
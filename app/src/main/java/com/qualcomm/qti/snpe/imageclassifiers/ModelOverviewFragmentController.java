@@ -10,18 +10,66 @@ import android.graphics.Bitmap;
 import android.os.AsyncTask;
 
 import com.qualcomm.qti.snpe.NeuralNetwork;
+import com.qualcomm.qti.snpe.SNPE;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.BitmapCache;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.BitmapLoader;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.EnsembleClassifier;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.EnsembleWeightStore;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.ImageClassifier;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.ImageSequenceFrameSource;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.InferenceScheduler;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.NetworkCache;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.ResultCache;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.RuntimeSelectionStore;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.StreamingClassifier;
+import com.qualcomm.qti.snpe.imageclassifiers.tasks.ClassifyEnsembleTask;
 import com.qualcomm.qti.snpe.imageclassifiers.tasks.ClassifyImageTask;
+import com.qualcomm.qti.snpe.imageclassifiers.tasks.ClassifyImagesTask;
+import com.qualcomm.qti.snpe.imageclassifiers.tasks.ClassifyRawImagesTask;
 import com.qualcomm.qti.snpe.imageclassifiers.tasks.LoadImageTask;
 import com.qualcomm.qti.snpe.imageclassifiers.tasks.LoadNetworkTask;
+import com.qualcomm.qti.snpe.imageclassifiers.tasks.SelectRuntimeTask;
 
 import java.io.File;
-import java.lang.ref.SoftReference;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ModelOverviewFragmentController extends AbstractViewController<ModelOverviewFragment> {
 
-    private final Map<String, SoftReference<Bitmap>> mBitmapCache;
+    public static final int DEFAULT_TOP_K = 1;
+
+    /**
+     * Label counts the top K action cycles through.
+     */
+    private static final int[] TOP_K_CHOICES = {DEFAULT_TOP_K, 3, 5};
+
+    public static final EnsembleClassifier.Fusion DEFAULT_FUSION =
+        EnsembleClassifier.Fusion.AVERAGE;
+
+    /**
+     * Executions run on a freshly built network before it is reported as loaded.
+     */
+    public static final int DEFAULT_WARM_UP_RUNS = 3;
+
+    /**
+     * Warm-up run counts the warm-up action cycles through.
+     */
+    private static final int[] WARM_UP_RUNS = {DEFAULT_WARM_UP_RUNS, 10, 0, 1};
+
+    /**
+     * Weights the ensemble weight action cycles this model through.
+     */
+    private static final float[] ENSEMBLE_WEIGHTS = {1.f, 2.f, 4.f, 0.5f};
+
+    private static final long STREAM_FRAME_INTERVAL_MS = 33;
+
+    private static final NeuralNetwork.Runtime[] RUNTIME_CANDIDATES = {
+        NeuralNetwork.Runtime.CPU, NeuralNetwork.Runtime.GPU, NeuralNetwork.Runtime.DSP
+    };
+
+    private final BitmapCache mBitmapCache;
+
+    private final ResultCache mResultCache;
 
     private final Model mModel;
 
@@ -29,11 +77,48 @@ public class ModelOverviewFragmentController extends AbstractViewController<Mode
 
     private NeuralNetwork mNeuralNetwork;
 
+    private final NetworkCache mNetworkCache;
+
+    private final RuntimeSelectionStore mRuntimeSelectionStore;
+
+    private final EnsembleWeightStore mEnsembleWeightStore;
+
+    private final InferenceScheduler mScheduler;
+
     private LoadNetworkTask mLoadTask;
 
+    private SelectRuntimeTask mSelectRuntimeTask;
+
+    private NeuralNetwork.Runtime mTargetRuntime = NeuralNetwork.Runtime.CPU;
+
+    /**
+     * Starts out true, so the first load uses the stored runtime of the model or
+     * benchmarks the runtimes, until the user picks one from the menu.
+     */
+    private boolean mAutomaticRuntime = true;
+
+    private StreamingClassifier mStreamingClassifier;
+
+    private ImageSequenceFrameSource mFrameSource;
+
+    private int mTopK = DEFAULT_TOP_K;
+
+    private boolean mEnsemble;
+
+    private EnsembleClassifier.Fusion mFusion = DEFAULT_FUSION;
+
+    private int mWarmUpRuns = DEFAULT_WARM_UP_RUNS;
+
+    private boolean mSamplesLoaded;
+
     public ModelOverviewFragmentController(final Application application, Model model) {
-        mBitmapCache = new HashMap<>();
+        mBitmapCache = ImageClassifiersApplication.from(application).getBitmapCache();
+        mResultCache = ImageClassifiersApplication.from(application).getResultCache();
         mApplication = application;
+        mNetworkCache = ImageClassifiersApplication.from(application).getNetworkCache();
+        mScheduler = ImageClassifiersApplication.from(application).getInferenceScheduler();
+        mRuntimeSelectionStore = new RuntimeSelectionStore(application);
+        mEnsembleWeightStore = new EnsembleWeightStore(application);
         mModel = model;
     }
 
@@ -41,44 +126,48 @@ public class ModelOverviewFragmentController extends AbstractViewController<Mode
     protected void onViewAttached(ModelOverviewFragment view) {
         view.setLoadingVisible(true);
         view.setModelName(mModel.name);
-        loadImageSamples(view);
-        loadNetwork(NeuralNetwork.Runtime.CPU);
+        mSamplesLoaded = false;
+        if (mAutomaticRuntime) {
+            selectRuntime();
+        } else {
+            loadNetwork(mTargetRuntime);
+        }
     }
 
-    private void loadImageSamples(ModelOverviewFragment view) {
+    /**
+     * Decodes the sample images no larger than needed for the given input size, once
+     * per attach. Samples are loaded once the network is, so its input size is known.
+     */
+    private void loadImageSamples(ModelOverviewFragment view, int width, int height) {
+        if (mSamplesLoaded) {
+            return;
+        }
+        mSamplesLoaded = true;
         for (int i = 0; i < mModel.jpgImages.length; i++) {
             final File jpeg = mModel.jpgImages[i];
-            final Bitmap cached = getCachedBitmap(jpeg);
+            final Bitmap cached = mBitmapCache.get(jpeg);
             if (cached != null) {
                 view.addSampleBitmap(cached);
             } else {
-                final LoadImageTask task = new LoadImageTask(this, jpeg);
+                final LoadImageTask task = new LoadImageTask(this, mModel, jpeg, width, height);
                 task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
             }
         }
     }
 
-    private Bitmap getCachedBitmap(File jpeg) {
-        final SoftReference<Bitmap> reference = mBitmapCache.get(jpeg.getAbsolutePath());
-        if (reference != null) {
-            final Bitmap bitmap = reference.get();
-            if (bitmap != null) {
-                return bitmap;
-            }
-        }
-        return null;
-    }
-
     @Override
     protected void onViewDetached(ModelOverviewFragment view) {
+        stopStreaming();
         if (mNeuralNetwork != null) {
-            mNeuralNetwork.release();
+            mNetworkCache.release(mNeuralNetwork);
             mNeuralNetwork = null;
         }
     }
 
     public void onBitmapLoaded(File imageFile, Bitmap bitmap) {
-        mBitmapCache.put(imageFile.getAbsolutePath(), new SoftReference<>(bitmap));
+        if (bitmap != null) {
+            mBitmapCache.put(imageFile, bitmap);
+        }
         if (isAttached()) {
             getView().addSampleBitmap(bitmap);
         }
@@ -92,8 +181,11 @@ public class ModelOverviewFragmentController extends AbstractViewController<Mode
             view.setOutputLayersNames(neuralNetwork.getOutputLayers());
             view.setModelVersion(neuralNetwork.getModelVersion());
             view.setLoadingVisible(false);
+            final ImageClassifier classifier =
+                new ImageClassifier(neuralNetwork, mModel, mTargetRuntime);
+            loadImageSamples(view, classifier.getInputWidth(), classifier.getInputHeight());
         } else {
-            neuralNetwork.release();
+            mNetworkCache.release(neuralNetwork);
         }
         mLoadTask = null;
     }
@@ -102,18 +194,198 @@ public class ModelOverviewFragmentController extends AbstractViewController<Mode
         if (isAttached()) {
             ModelOverviewFragment view = getView();
             view.displayModelLoadFailed();
+            loadImageSamples(view, BitmapLoader.DEFAULT_SIZE, BitmapLoader.DEFAULT_SIZE);
         }
         mLoadTask = null;
     }
 
     public void classify(final Bitmap bitmap) {
+        final NeuralNetwork neuralNetwork = mNeuralNetwork;
+        if (mEnsemble) {
+            final ClassifyEnsembleTask task = new ClassifyEnsembleTask(mApplication, this,
+                mTargetRuntime, bitmap, mFusion, mTopK);
+            mScheduler.execute(InferenceScheduler.Lane.CLASSIFICATION, bitmap, task);
+        } else if (neuralNetwork != null) {
+            final ClassifyImageTask task = new ClassifyImageTask(this, mNetworkCache,
+                neuralNetwork, mTargetRuntime, bitmap, mModel, mTopK, mResultCache);
+            mScheduler.execute(InferenceScheduler.Lane.CLASSIFICATION, bitmap, task);
+        } else {
+            getView().displayModelNotLoaded();
+        }
+    }
+
+    /**
+     * Classifies every sample image of the model, batched as the network allows.
+     */
+    public void classifyAll() {
         final NeuralNetwork neuralNetwork = mNeuralNetwork;
         if (neuralNetwork != null) {
-            final ClassifyImageTask task = new ClassifyImageTask(this,
-                mNeuralNetwork, bitmap, mModel);
-            task.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+            final ClassifyImagesTask task = new ClassifyImagesTask(this, mNetworkCache,
+                neuralNetwork, mTargetRuntime, mModel.jpgImages, mModel, mTopK);
+            mScheduler.execute(InferenceScheduler.Lane.CLASSIFICATION, mModel.jpgImages, task);
+        } else {
+            getView().displayModelNotLoaded();
+        }
+    }
+
+    /**
+     * Classifies every preprocessed .raw input file of the model.
+     */
+    public void classifyRaw() {
+        final NeuralNetwork neuralNetwork = mNeuralNetwork;
+        if (neuralNetwork == null) {
+            getView().displayModelNotLoaded();
+        } else if (mModel.rawImages == null || mModel.rawImages.length == 0) {
+            getView().displayNoRawImages();
         } else {
+            final ClassifyRawImagesTask task = new ClassifyRawImagesTask(this, mNetworkCache,
+                neuralNetwork, mTargetRuntime, mModel.rawImages, mModel, mTopK);
+            mScheduler.execute(InferenceScheduler.Lane.CLASSIFICATION, mModel.rawImages, task);
+        }
+    }
+
+    /**
+     * Starts or stops continuously classifying the sample images as a replayed
+     * frame stream.
+     */
+    public void toggleStreaming() {
+        if (mStreamingClassifier != null) {
+            stopStreaming();
+            return;
+        }
+        final NeuralNetwork neuralNetwork = mNeuralNetwork;
+        if (neuralNetwork == null) {
             getView().displayModelNotLoaded();
+            return;
+        }
+        final ImageClassifier classifier = new ImageClassifier(
+            mNetworkCache.getTensorPool(mNetworkCache.acquire(neuralNetwork)), mModel,
+            mTargetRuntime.name());
+        mStreamingClassifier = new StreamingClassifier(classifier, mTopK,
+            new StreamingClassifier.Listener() {
+                @Override
+                public void onFrameClassified(String[] result) {
+                    if (result.length > 0) {
+                        onClassificationResult(result);
+                    }
+                }
+
+                @Override
+                public void onStatsUpdated(StreamingClassifier.Stats stats) {
+                    if (isAttached() && mStreamingClassifier != null) {
+                        getView().setStreamingStats(stats);
+                    }
+                }
+
+                @Override
+                public void onStreamFailed() {
+                    if (mStreamingClassifier != null) {
+                        stopStreaming();
+                        onClassificationFailed();
+                    }
+                }
+
+                @Override
+                public void onStopped() {
+                    mNetworkCache.release(neuralNetwork);
+                }
+            });
+        mStreamingClassifier.start();
+        mFrameSource = new ImageSequenceFrameSource(mModel.jpgImages,
+            classifier.getInputWidth(), classifier.getInputHeight(),
+            STREAM_FRAME_INTERVAL_MS, mStreamingClassifier);
+        mFrameSource.start();
+    }
+
+    private void stopStreaming() {
+        if (mFrameSource != null) {
+            mFrameSource.stop();
+            mFrameSource = null;
+        }
+        if (mStreamingClassifier != null) {
+            mStreamingClassifier.stop();
+            mStreamingClassifier = null;
+        }
+        if (isAttached()) {
+            getView().setStreamingStats(null);
+        }
+    }
+
+    /**
+     * Switches single image classification between this model and the ensemble of
+     * every available model.
+     */
+    public void toggleEnsemble() {
+        mEnsemble = !mEnsemble;
+        if (isAttached()) {
+            getView().displayEnsembleEnabled(mEnsemble);
+        }
+    }
+
+    /**
+     * Switches how the results of the ensemble models are combined, in turn the
+     * average, the highest and the weighted average score.
+     */
+    public void toggleFusion() {
+        final EnsembleClassifier.Fusion[] fusions = EnsembleClassifier.Fusion.values();
+        mFusion = fusions[(mFusion.ordinal() + 1) % fusions.length];
+        if (isAttached()) {
+            getView().displayFusion(mFusion);
+        }
+    }
+
+    /**
+     * Moves the weight of this model in weighted ensembles to the next of
+     * {@link #ENSEMBLE_WEIGHTS}, and stores it.
+     */
+    public void nextEnsembleWeight() {
+        final float current = mEnsembleWeightStore.get(mModel);
+        float weight = ENSEMBLE_WEIGHTS[0];
+        for (int i = 0; i < ENSEMBLE_WEIGHTS.length; i++) {
+            if (ENSEMBLE_WEIGHTS[i] == current) {
+                weight = ENSEMBLE_WEIGHTS[(i + 1) % ENSEMBLE_WEIGHTS.length];
+                break;
+            }
+        }
+        mEnsembleWeightStore.put(mModel, weight);
+        if (isAttached()) {
+            getView().displayEnsembleWeight(mModel.name, weight);
+        }
+    }
+
+    /**
+     * Moves the number of executions warming up networks built from now on to the
+     * next of {@link #WARM_UP_RUNS}, 0 for none.
+     */
+    public void nextWarmUpRuns() {
+        int next = 0;
+        for (int i = 0; i < WARM_UP_RUNS.length; i++) {
+            if (WARM_UP_RUNS[i] == mWarmUpRuns) {
+                next = (i + 1) % WARM_UP_RUNS.length;
+                break;
+            }
+        }
+        mWarmUpRuns = WARM_UP_RUNS[next];
+        if (isAttached()) {
+            getView().displayWarmUpRuns(mWarmUpRuns);
+        }
+    }
+
+    /**
+     * Moves how many of the highest scoring labels are reported per classification to
+     * the next of {@link #TOP_K_CHOICES}.
+     */
+    public void nextTopK() {
+        int next = 0;
+        for (int i = 0; i < TOP_K_CHOICES.length; i++) {
+            if (TOP_K_CHOICES[i] == mTopK) {
+                next = (i + 1) % TOP_K_CHOICES.length;
+                break;
+            }
+        }
+        mTopK = TOP_K_CHOICES[next];
+        if (isAttached()) {
+            getView().displayTopK(mTopK);
         }
     }
 
@@ -124,6 +396,18 @@ public class ModelOverviewFragmentController extends AbstractViewController<Mode
         }
     }
 
+    public void onEnsembleResult(EnsembleClassifier.Result result) {
+        if (isAttached()) {
+            getView().setEnsembleResult(result);
+        }
+    }
+
+    public void onBatchClassificationResult(File[] images, List<String[]> results) {
+        if (isAttached()) {
+            getView().setBatchClassificationResult(images, results);
+        }
+    }
+
     public void onClassificationFailed() {
         if (isAttached()) {
             getView().displayClassificationFailed();
@@ -134,22 +418,82 @@ public class ModelOverviewFragmentController extends AbstractViewController<Mode
         if (isAttached()) {
             ModelOverviewFragment view = getView();
             view.setLoadingVisible(true);
+            mTargetRuntime = targetRuntime;
+            mAutomaticRuntime = false;
             loadNetwork(targetRuntime);
         }
     }
 
+    /**
+     * Switches to the fastest supported runtime, benchmarking the runtimes on the
+     * sample images unless a recent decision for this model and device is stored.
+     */
+    public void setAutomaticRuntime() {
+        if (isAttached()) {
+            ModelOverviewFragment view = getView();
+            view.setLoadingVisible(true);
+            mAutomaticRuntime = true;
+            selectRuntime();
+        }
+    }
+
+    private void selectRuntime() {
+        final NeuralNetwork.Runtime stored = mRuntimeSelectionStore.get(mModel);
+        if (stored != null) {
+            mTargetRuntime = stored;
+            loadNetwork(stored);
+            return;
+        }
+
+        releaseNetwork();
+        final SNPE.NeuralNetworkBuilder builder = new SNPE.NeuralNetworkBuilder(mApplication);
+        final List<NeuralNetwork.Runtime> candidates = new ArrayList<>();
+        for (NeuralNetwork.Runtime runtime : RUNTIME_CANDIDATES) {
+            if (builder.isRuntimeSupported(runtime)) {
+                candidates.add(runtime);
+            }
+        }
+        mSelectRuntimeTask = new SelectRuntimeTask(mApplication, this, mModel, candidates);
+        mScheduler.execute(InferenceScheduler.Lane.NETWORK_LOAD, null, mSelectRuntimeTask);
+    }
+
+    public void onRuntimeSelected(NeuralNetwork.Runtime runtime) {
+        mSelectRuntimeTask = null;
+        mRuntimeSelectionStore.put(mModel, runtime);
+        mTargetRuntime = runtime;
+        if (isAttached() && mAutomaticRuntime) {
+            loadNetwork(runtime);
+        }
+    }
+
+    public void onRuntimeSelectionFailed() {
+        mSelectRuntimeTask = null;
+        onNetworkLoadFailed();
+    }
+
     private void loadNetwork(NeuralNetwork.Runtime targetRuntime) {
+        releaseNetwork();
+
+        mLoadTask = new LoadNetworkTask(mApplication, this, mModel, targetRuntime, mWarmUpRuns);
+        mScheduler.execute(InferenceScheduler.Lane.NETWORK_LOAD, null, mLoadTask);
+    }
+
+    private void releaseNetwork() {
+        stopStreaming();
         final NeuralNetwork neuralNetwork = mNeuralNetwork;
         if (neuralNetwork != null) {
-            neuralNetwork.release();
+            mNetworkCache.release(neuralNetwork);
             mNeuralNetwork = null;
         }
 
         if (mLoadTask != null) {
             mLoadTask.cancel(false);
+            mLoadTask = null;
         }
 
-        mLoadTask = new LoadNetworkTask(mApplication, this, mModel, targetRuntime);
-        mLoadTask.executeOnExecutor(AsyncTask.SERIAL_EXECUTOR);
+        if (mSelectRuntimeTask != null) {
+            mSelectRuntimeTask.cancel(false);
+            mSelectRuntimeTask = null;
+        }
     }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.engine;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A loaded network the inference pipeline executes, independent of the backend.
+ *
+ * The SNPE backend runs on devices; {@link ReferenceEngine} runs on any JVM.
+ */
+public interface InferenceEngine {
+
+    /**
+     * Returns the shape of every input layer by name.
+     */
+    Map<String, int[]> getInputShapes();
+
+    Set<String> getOutputLayers();
+
+    String getModelVersion();
+
+    /**
+     * Creates a tensor for this engine. The caller owns and releases it.
+     */
+    Tensor createTensor(int... shape);
+
+    /**
+     * Returns an input map holding the tensor under the layer, to be kept and executed
+     * again and again. The engine may keep its own form of the inputs along with it,
+     * so executing it is cheaper than executing any other map with the same content.
+     */
+    Map<String, Tensor> createInputs(String layer, Tensor tensor);
+
+    /**
+     * Executes the network on the input tensors, by input layer name.
+     *
+     * Threads sharing an engine hold its lock from the execution until they are done
+     * with the outputs, as the next execution rewrites them.
+     *
+     * @return the output tensors by output layer name, owned by the engine and valid
+     * until the next execution.
+     */
+    Map<String, Tensor> execute(Map<String, Tensor> inputs);
+
+    void release();
+}
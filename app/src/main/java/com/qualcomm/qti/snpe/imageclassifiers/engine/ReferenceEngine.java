@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.engine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pure Java engine executing a single dense layer followed by a softmax, for running
+ * and load testing the inference pipeline without a device.
+ *
+ * Without weights every class averages an equal share of the input, so outputs
+ * still depend on the input. Each execution can additionally take a simulated
+ * latency, either parked like a runtime offloading to another processor or spinning
+ * like the CPU runtime. Executions are thread safe.
+ */
+public final class ReferenceEngine implements InferenceEngine {
+
+    public static final String DEFAULT_INPUT_LAYER = "data";
+
+    public static final String DEFAULT_OUTPUT_LAYER = "prob";
+
+    public static final String MODEL_VERSION = "reference";
+
+    private final String mInputLayer;
+
+    private final int[] mInputShape;
+
+    private final String mOutputLayer;
+
+    private final int mClasses;
+
+    private final float[] mWeights;
+
+    private final float[] mBiases;
+
+    private final long mLatencyNanos;
+
+    private final long mJitterNanos;
+
+    private final boolean mSpin;
+
+    private final Random mRandom = new Random();
+
+    private ReferenceEngine(Builder builder) {
+        mInputLayer = builder.mInputLayer;
+        mInputShape = builder.mInputShape;
+        mOutputLayer = builder.mOutputLayer;
+        mClasses = builder.mClasses;
+        mWeights = builder.mWeights;
+        mBiases = builder.mBiases;
+        mLatencyNanos = builder.mLatencyNanos;
+        mJitterNanos = builder.mJitterNanos;
+        mSpin = builder.mSpin;
+    }
+
+    @Override
+    public Map<String, int[]> getInputShapes() {
+        return Collections.singletonMap(mInputLayer, mInputShape.clone());
+    }
+
+    @Override
+    public Set<String> getOutputLayers() {
+        return Collections.singleton(mOutputLayer);
+    }
+
+    @Override
+    public String getModelVersion() {
+        return MODEL_VERSION;
+    }
+
+    @Override
+    public Tensor createTensor(int... shape) {
+        return new ArrayTensor(shape.clone());
+    }
+
+    @Override
+    public Map<String, Tensor> createInputs(String layer, Tensor tensor) {
+        return Collections.singletonMap(layer, tensor);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the input is missing, was not created by a
+     * reference engine or does not have the input shape.
+     */
+    @Override
+    public Map<String, Tensor> execute(Map<String, Tensor> inputs) {
+        final Tensor tensor = inputs.get(mInputLayer);
+        if (!(tensor instanceof ArrayTensor)
+            || !Arrays.equals(tensor.getShape(), mInputShape)) {
+            throw new IllegalArgumentException("Input " + mInputLayer + " must be a tensor of "
+                + Arrays.toString(mInputShape));
+        }
+        final long start = System.nanoTime();
+        final float[] input = ((ArrayTensor) tensor).mValues;
+        final int batchSize = getBatchSize(mInputShape);
+        final int inputSize = input.length / batchSize;
+        final ArrayTensor output = new ArrayTensor(new int[] {batchSize, mClasses});
+        for (int image = 0; image < batchSize; image++) {
+            final int inputOffset = image * inputSize;
+            final int outputOffset = image * mClasses;
+            for (int c = 0; c < mClasses; c++) {
+                output.mValues[outputOffset + c] = (mWeights != null)
+                    ? dot(input, inputOffset, inputSize, c)
+                    : share(input, inputOffset, inputSize, c);
+            }
+            softmax(output.mValues, outputOffset, mClasses);
+        }
+        simulateLatency(start);
+
+        final Map<String, Tensor> outputs = new HashMap<>();
+        outputs.put(mOutputLayer, output);
+        return outputs;
+    }
+
+    @Override
+    public void release() {}
+
+    /**
+     * Returns the number of images of the given shape, like the rest of the pipeline:
+     * shapes without a leading batch dimension hold a single image.
+     */
+    static int getBatchSize(int[] shape) {
+        return shape.length > 3 ? Math.max(1, shape[0]) : 1;
+    }
+
+    private float dot(float[] input, int offset, int size, int c) {
+        final int row = c * size;
+        float sum = mBiases[c];
+        for (int i = 0; i < size; i++) {
+            sum += mWeights[row + i] * input[offset + i];
+        }
+        return sum;
+    }
+
+    private float share(float[] input, int offset, int size, int c) {
+        final int start = (int) ((long) c * size / mClasses);
+        final int end = (int) ((long) (c + 1) * size / mClasses);
+        float sum = 0.f;
+        for (int i = start; i < end; i++) {
+            sum += input[offset + i];
+        }
+        return (end > start) ? sum / (end - start) : 0.f;
+    }
+
+    private static void softmax(float[] values, int offset, int length) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = offset; i < offset + length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        float sum = 0.f;
+        for (int i = offset; i < offset + length; i++) {
+            values[i] = (float) Math.exp(values[i] - max);
+            sum += values[i];
+        }
+        for (int i = offset; i < offset + length; i++) {
+            values[i] /= sum;
+        }
+    }
+
+    private void simulateLatency(long start) {
+        long latency = mLatencyNanos;
+        if (mJitterNanos > 0) {
+            final double jitter;
+            synchronized (mRandom) {
+                jitter = mRandom.nextDouble();
+            }
+            latency += (long) (jitter * mJitterNanos);
+        }
+        final long deadline = start + latency;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (!mSpin) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    private static final class ArrayTensor implements Tensor {
+
+        private final int[] mShape;
+
+        private final float[] mValues;
+
+        ArrayTensor(int[] shape) {
+            mShape = shape;
+            int size = 1;
+            for (int dimension : shape) {
+                size *= dimension;
+            }
+            mValues = new float[size];
+        }
+
+        @Override
+        public int[] getShape() {
+            return mShape.clone();
+        }
+
+        @Override
+        public int getSize() {
+            return mValues.length;
+        }
+
+        @Override
+        public void write(float[] values, int offset, int length) {
+            System.arraycopy(values, offset, mValues, 0, length);
+        }
+
+        @Override
+        public int read(float[] values, int offset, int length) {
+            final int count = Math.min(length, mValues.length);
+            System.arraycopy(mValues, 0, values, offset, count);
+            return count;
+        }
+
+        @Override
+        public void release() {}
+    }
+
+    public static final class Builder {
+
+        private String mInputLayer = DEFAULT_INPUT_LAYER;
+
+        private int[] mInputShape;
+
+        private String mOutputLayer = DEFAULT_OUTPUT_LAYER;
+
+        private int mClasses;
+
+        private float[] mWeights;
+
+        private float[] mBiases;
+
+        private long mLatencyNanos;
+
+        private long mJitterNanos;
+
+        private boolean mSpin;
+
+        /**
+         * @param shape e.g. {@code 1, 227, 227, 3}, batch first.
+         */
+        public Builder setInput(String layer, int... shape) {
+            mInputLayer = layer;
+            mInputShape = shape.clone();
+            return this;
+        }
+
+        public Builder setOutput(String layer, int classes) {
+            mOutputLayer = layer;
+            mClasses = classes;
+            return this;
+        }
+
+        /**
+         * Sets the dense layer, one row of one input image worth of weights per class.
+         */
+        public Builder setWeights(float[] weights, float[] biases) {
+            mWeights = weights;
+            mBiases = biases;
+            return this;
+        }
+
+        /**
+         * Makes every execution take at least {@code latency} plus a uniformly random
+         * share of {@code jitter}.
+         *
+         * @param spin whether to keep the calling thread busy, like the CPU runtime,
+         *             rather than parked.
+         */
+        public Builder setLatency(long latency, long jitter, TimeUnit unit, boolean spin) {
+            mLatencyNanos = unit.toNanos(latency);
+            mJitterNanos = unit.toNanos(jitter);
+            mSpin = spin;
+            return this;
+        }
+
+        /**
+         * @throws IllegalStateException if the input or output is not set, or the
+         * weights do not match them.
+         */
+        public ReferenceEngine build() {
+            if (mInputShape == null || mClasses <= 0) {
+                throw new IllegalStateException("Input shape and output classes must be set.");
+            }
+            int size = 1;
+            for (int dimension : mInputShape) {
+                size *= dimension;
+            }
+            final int inputSize = size / getBatchSize(mInputShape);
+            if (mWeights != null && (mWeights.length != (long) inputSize * mClasses
+                || mBiases == null || mBiases.length != mClasses)) {
+                throw new IllegalStateException("Weights must be " + mClasses + " x "
+                    + inputSize + " with " + mClasses + " biases.");
+            }
+            return new ReferenceEngine(this);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.engine;
+
+/**
+ * Float tensor created by an {@link InferenceEngine}, only valid with that engine.
+ */
+public interface Tensor {
+
+    int[] getShape();
+
+    /**
+     * Returns the number of floats, the product of the shape dimensions.
+     */
+    int getSize();
+
+    /**
+     * Writes {@code length} floats from {@code values[offset]} at the start of the
+     * tensor.
+     */
+    void write(float[] values, int offset, int length);
+
+    /**
+     * Reads up to {@code length} floats from the start of the tensor.
+     *
+     * @return the number of floats read.
+     */
+    int read(float[] values, int offset, int length);
+
+    void release();
+}
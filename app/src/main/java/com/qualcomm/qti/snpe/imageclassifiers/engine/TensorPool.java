@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Input tensors of an engine, each with its input map, kept between inferences so
+ * that an inference leases an existing tensor instead of creating one.
+ *
+ * Up to the capacity returned tensors are kept, one per inference expected in flight
+ * at once. Leases beyond it create a tensor that is released when returned, so a
+ * capacity of 0 creates and releases a tensor per inference.
+ */
+public final class TensorPool {
+
+    public static final class Lease {
+        public final Tensor tensor;
+
+        /**
+         * The input map handed to {@link InferenceEngine#execute(Map)}, holding
+         * {@link #tensor} under the input layer, created once with
+         * {@link InferenceEngine#createInputs(String, Tensor)}.
+         */
+        public final Map<String, Tensor> inputs;
+
+        Lease(InferenceEngine engine, String layer, Tensor tensor) {
+            this.tensor = tensor;
+            this.inputs = engine.createInputs(layer, tensor);
+        }
+    }
+
+    private final InferenceEngine mEngine;
+
+    private final String mLayer;
+
+    private final int mCapacity;
+
+    private final Deque<Lease> mIdle = new ArrayDeque<>();
+
+    private int mCreated;
+
+    private int mLeased;
+
+    private boolean mReleased;
+
+    /**
+     * @param layer the input layer the tensors are created for.
+     * @param capacity returned tensors kept for later leases.
+     */
+    public TensorPool(InferenceEngine engine, String layer, int capacity) {
+        mEngine = engine;
+        mLayer = layer;
+        mCapacity = capacity;
+    }
+
+    public InferenceEngine getEngine() {
+        return mEngine;
+    }
+
+    /**
+     * Leases an input tensor, to be given back with {@link #giveBack(Lease)} once the
+     * inference is done. Its content is whatever the previous lease left in it.
+     *
+     * @throws IllegalStateException if the pool was released.
+     */
+    public Lease lease() {
+        synchronized (this) {
+            if (mReleased) {
+                throw new IllegalStateException("The pool was released.");
+            }
+            mLeased++;
+            final Lease idle = mIdle.pollFirst();
+            if (idle != null) {
+                return idle;
+            }
+            mCreated++;
+        }
+        return new Lease(mEngine, mLayer,
+            mEngine.createTensor(mEngine.getInputShapes().get(mLayer)));
+    }
+
+    public void giveBack(Lease lease) {
+        synchronized (this) {
+            if (!mReleased && mIdle.size() < mCapacity) {
+                mIdle.addFirst(lease);
+                return;
+            }
+        }
+        lease.tensor.release();
+    }
+
+    /**
+     * Releases the kept tensors. Tensors leased at that point are released when given
+     * back. The engine itself stays with its owner.
+     */
+    public void release() {
+        final List<Lease> idle;
+        synchronized (this) {
+            mReleased = true;
+            idle = new ArrayList<>(mIdle);
+            mIdle.clear();
+        }
+        for (Lease lease : idle) {
+            lease.tensor.release();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d leases, %d tensors created, %d kept of %d",
+            mLeased, mCreated, mIdle.size(), mCapacity);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import java.io.File;
+
+/**
+ * Application wide cache of decoded image files, bounded by bitmap byte size and
+ * evicting the least recently used bitmaps first.
+ *
+ * Entries are keyed by file path and modification time, so a file replaced on disk
+ * is decoded again.
+ */
+public class BitmapCache {
+
+    /**
+     * Fraction of the heap limit used by default.
+     */
+    private static final int DEFAULT_HEAP_DIVISOR = 8;
+
+    private final LruCache<String, Bitmap> mCache;
+
+    public BitmapCache() {
+        this((int) Math.min(Integer.MAX_VALUE,
+            Runtime.getRuntime().maxMemory() / DEFAULT_HEAP_DIVISOR));
+    }
+
+    public BitmapCache(int maxBytes) {
+        mCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * @return the cached bitmap, or null if the file was not cached or changed since.
+     */
+    public Bitmap get(File file) {
+        return mCache.get(keyOf(file));
+    }
+
+    public void put(File file, Bitmap bitmap) {
+        mCache.put(keyOf(file), bitmap);
+    }
+
+    /**
+     * Evicts bitmaps according to the {@link ComponentCallbacks2} trim level: half of
+     * the cache when memory runs low in the foreground or once the process is in the
+     * background, all of it when memory is critical in the foreground or the process
+     * is likely to be killed next.
+     */
+    public void trim(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+            || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+            || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+        }
+    }
+
+    public int hitCount() {
+        return mCache.hitCount();
+    }
+
+    public int missCount() {
+        return mCache.missCount();
+    }
+
+    public int evictionCount() {
+        return mCache.evictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return "BitmapCache{" + mCache.size() + "/" + mCache.maxSize() + " bytes, hits="
+            + hitCount() + ", misses=" + missCount() + ", evictions=" + evictionCount() + "}";
+    }
+
+    private static String keyOf(File file) {
+        return file.getAbsolutePath() + '@' + file.lastModified();
+    }
+}
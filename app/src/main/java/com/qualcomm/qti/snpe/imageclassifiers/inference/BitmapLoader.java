@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.File;
+
+/**
+ * Decodes image files no larger than needed to cover a target size, so that the
+ * final resize to the network input never starts from a full resolution bitmap.
+ */
+public final class BitmapLoader {
+
+    /**
+     * Size to decode to before the network input size is known, covering the
+     * common 224, 227 and 299 pixel classifier inputs.
+     */
+    public static final int DEFAULT_SIZE = 299;
+
+    private BitmapLoader() {}
+
+    /**
+     * Decodes the file subsampled by the largest power of two that still covers
+     * {@code width x height}.
+     *
+     * @return the bitmap, or null if the file could not be decoded.
+     */
+    public static Bitmap decode(File file, int width, int height) {
+        final String path = file.getAbsolutePath();
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = computeSampleSize(options.outWidth, options.outHeight,
+            width, height);
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        return BitmapFactory.decodeFile(path, options);
+    }
+
+    static int computeSampleSize(int srcWidth, int srcHeight, int width, int height) {
+        int sampleSize = 1;
+        while (srcWidth / (sampleSize * 2) >= width && srcHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.qualcomm.qti.snpe.imageclassifiers.processing.TopK;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Classifies an image with several models at once and fuses their top classes.
+ *
+ * The image is converted once per distinct input shape and mean image, then every
+ * model executes concurrently on the worker pool. Top classes are matched across
+ * models by label.
+ */
+public class EnsembleClassifier {
+
+    private static final String LOG_TAG = EnsembleClassifier.class.getSimpleName();
+
+    public enum Fusion {
+        /**
+         * Mean score over all models, a model not ranking a label counting as 0.
+         */
+        AVERAGE,
+
+        /**
+         * Highest score of any model.
+         */
+        MAX,
+
+        /**
+         * Mean score weighted by the member weights, see {@link EnsembleWeightStore}.
+         */
+        WEIGHTED
+    }
+
+    public static final class Member {
+        final ImageClassifier classifier;
+        final float weight;
+
+        public Member(ImageClassifier classifier, float weight) {
+            this.classifier = classifier;
+            this.weight = weight;
+        }
+    }
+
+    public static final class Result {
+        /**
+         * Fused label/score pairs, highest score first, like
+         * {@link ImageClassifier#classify(Bitmap, int)}.
+         */
+        public final String[] labels;
+
+        /**
+         * Time from the start of the classification until each model, by name, had
+         * its result, -1 for models that failed.
+         */
+        public final Map<String, Long> modelLatencyNanos;
+
+        public final long totalLatencyNanos;
+
+        Result(String[] labels, Map<String, Long> modelLatencyNanos, long totalLatencyNanos) {
+            this.labels = labels;
+            this.modelLatencyNanos = modelLatencyNanos;
+            this.totalLatencyNanos = totalLatencyNanos;
+        }
+    }
+
+    private final List<Member> mMembers;
+
+    private final Fusion mFusion;
+
+    private final ExecutorService mWorkers;
+
+    public EnsembleClassifier(List<Member> members, Fusion fusion, ExecutorService workers) {
+        mMembers = members;
+        mFusion = fusion;
+        mWorkers = workers;
+    }
+
+    /**
+     * @throws InterruptedException if interrupted, once every model is done executing,
+     * so the networks may be released right after.
+     */
+    public Result classify(final Bitmap image, final int topK) throws InterruptedException {
+        final long start = System.nanoTime();
+
+        final Map<String, Future<float[]>> conversions = new HashMap<>();
+        final List<Future<MemberResult>> executions = new ArrayList<>(mMembers.size());
+        for (final Member member : mMembers) {
+            final String key = member.classifier.getPreprocessingKey();
+            Future<float[]> conversion = conversions.get(key);
+            if (conversion == null) {
+                conversion = mWorkers.submit(new Callable<float[]>() {
+                    @Override
+                    public float[] call() throws IOException {
+                        return member.classifier.convert(image);
+                    }
+                });
+                conversions.put(key, conversion);
+            }
+            final Future<float[]> input = conversion;
+            executions.add(mWorkers.submit(new Callable<MemberResult>() {
+                @Override
+                public MemberResult call() throws Exception {
+                    final TopK top = member.classifier.execute(input.get(), topK);
+                    return new MemberResult(top, System.nanoTime() - start);
+                }
+            }));
+        }
+
+        final Map<String, Long> latencies = new LinkedHashMap<>();
+        final Map<String, float[]> fused = new HashMap<>();
+        float totalWeight = 0.f;
+        for (int i = 0; i < mMembers.size(); i++) {
+            final Member member = mMembers.get(i);
+            final String name = member.classifier.getModel().name;
+            final MemberResult result;
+            try {
+                result = executions.get(i).get();
+            } catch (ExecutionException e) {
+                Log.e(LOG_TAG, "Model " + name + " failed.", e.getCause());
+                latencies.put(name, -1L);
+                continue;
+            } catch (InterruptedException e) {
+                awaitUninterruptibly(executions);
+                throw e;
+            }
+            latencies.put(name, result.latencyNanos);
+            if (result.top == null) {
+                continue;
+            }
+            totalWeight += weightOf(member);
+            for (int k = 0; k < result.top.size(); k++) {
+                final String label = member.classifier.getLabel(result.top.indices[k]);
+                float[] score = fused.get(label);
+                if (score == null) {
+                    score = new float[1];
+                    fused.put(label, score);
+                }
+                score[0] = fuse(score[0], result.top.scores[k], weightOf(member));
+            }
+        }
+        return new Result(toLabels(fused, totalWeight, topK), latencies,
+            System.nanoTime() - start);
+    }
+
+    private static void awaitUninterruptibly(List<? extends Future<?>> futures) {
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private float weightOf(Member member) {
+        return (mFusion == Fusion.WEIGHTED) ? member.weight : 1.f;
+    }
+
+    private float fuse(float fused, float score, float weight) {
+        return (mFusion == Fusion.MAX) ? Math.max(fused, score) : fused + score * weight;
+    }
+
+    private String[] toLabels(Map<String, float[]> fused, float totalWeight, int topK) {
+        final List<Map.Entry<String, float[]>> entries = new ArrayList<>(fused.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, float[]>>() {
+            @Override
+            public int compare(Map.Entry<String, float[]> a, Map.Entry<String, float[]> b) {
+                return Float.compare(b.getValue()[0], a.getValue()[0]);
+            }
+        });
+        final int count = Math.min(topK, entries.size());
+        final String[] labels = new String[count * 2];
+        for (int i = 0; i < count; i++) {
+            float score = entries.get(i).getValue()[0];
+            if (mFusion != Fusion.MAX && totalWeight > 0.f) {
+                score /= totalWeight;
+            }
+            labels[2 * i] = entries.get(i).getKey();
+            labels[2 * i + 1] = String.valueOf(score);
+        }
+        return labels;
+    }
+
+    private static final class MemberResult {
+        final TopK top;
+        final long latencyNanos;
+
+        MemberResult(TopK top, long latencyNanos) {
+            this.top = top;
+            this.latencyNanos = latencyNanos;
+        }
+    }
+}
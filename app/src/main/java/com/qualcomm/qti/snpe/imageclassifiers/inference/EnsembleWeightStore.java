@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.qualcomm.qti.snpe.imageclassifiers.Model;
+
+/**
+ * Persists the weight of each model in {@link EnsembleClassifier.Fusion#WEIGHTED}
+ * ensembles, as set by the user. Models without a stored weight weigh
+ * {@link #DEFAULT_WEIGHT}.
+ */
+public class EnsembleWeightStore {
+
+    public static final float DEFAULT_WEIGHT = 1.f;
+
+    private static final String PREFERENCES_NAME = "ensemble_weights";
+
+    private final SharedPreferences mPreferences;
+
+    public EnsembleWeightStore(Context context) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    public float get(Model model) {
+        return mPreferences.getFloat(model.name, DEFAULT_WEIGHT);
+    }
+
+    public void put(Model model, float weight) {
+        mPreferences.edit().putFloat(model.name, weight).apply();
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.qualcomm.qti.snpe.NeuralNetwork;
+import com.qualcomm.qti.snpe.imageclassifiers.Model;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.InferenceEngine;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.Tensor;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.TensorPool;
+import com.qualcomm.qti.snpe.imageclassifiers.metrics.InferenceMetrics;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.LabelTable;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.MeanImageCache;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.TopK;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs bitmaps through a network and turns the output into label/score pairs.
+ *
+ * The network is reached through an {@link InferenceEngine}, an SNPE network or
+ * any other backend. Input tensors are leased from a {@link TensorPool}, usually the
+ * one the {@link NetworkCache} keeps with the network. Executions hold the lock of
+ * the engine until the outputs are read, so classifiers sharing the pool of a network
+ * execute one at a time.
+ *
+ * Results are {@code String[]} of alternating label and score, highest score first,
+ * or an empty array when the image could not be classified.
+ */
+public class ImageClassifier {
+
+    private static final String LOG_TAG = ImageClassifier.class.getSimpleName();
+
+    public static final String INPUT_LAYER = "data";
+
+    public static final String OUTPUT_LAYER = "prob";
+
+    private final InferenceEngine mEngine;
+
+    private final TensorPool mInputs;
+
+    private final Model mModel;
+
+    private final String mRuntime;
+
+    private final ImagePreprocessor mPreprocessor = ImagePreprocessor.getInstance();
+
+    private final InferenceMetrics mMetrics = InferenceMetrics.getInstance();
+
+    /**
+     * Creates a classifier creating an input tensor per inference, for networks not
+     * kept in a {@link NetworkCache}.
+     */
+    public ImageClassifier(NeuralNetwork network, Model model, NeuralNetwork.Runtime runtime) {
+        this(new SnpeEngine(network), model, runtime.name());
+    }
+
+    public ImageClassifier(InferenceEngine engine, Model model, String runtime) {
+        this(new TensorPool(engine, INPUT_LAYER, 0), model, runtime);
+    }
+
+    /**
+     * @param inputs the input tensors of the engine, which is reached through it.
+     * @param runtime the name metrics are recorded under.
+     */
+    public ImageClassifier(TensorPool inputs, Model model, String runtime) {
+        mEngine = inputs.getEngine();
+        mInputs = inputs;
+        mModel = model;
+        mRuntime = runtime;
+    }
+
+    /**
+     * Returns how many images are classified per network execution.
+     */
+    public int getBatchSize() {
+        return ImagePreprocessor.getBatchSize(getInputShape());
+    }
+
+    /**
+     * Returns the input image width, e.g. to decode images no larger than needed.
+     */
+    public int getInputWidth() {
+        final int[] shape = getInputShape();
+        return shape[shape.length - 2];
+    }
+
+    public int getInputHeight() {
+        final int[] shape = getInputShape();
+        return shape[shape.length - 3];
+    }
+
+    public String[] classify(Bitmap image, int topK) {
+        return classify(Collections.singletonList(image), topK).get(0);
+    }
+
+    /**
+     * Classifies the images, packing as many of them per execution as the input
+     * batch dimension allows. Models without a batch dimension execute the images
+     * back to back on a single shared input tensor.
+     *
+     * @return one result per image, in order.
+     */
+    public List<String[]> classify(List<Bitmap> images, int topK) {
+        final List<String[]> results = new ArrayList<>(images.size());
+        final TensorPool.Lease lease = mInputs.lease();
+        try {
+            final Tensor tensor = lease.tensor;
+            final int batchSize = ImagePreprocessor.getBatchSize(tensor.getShape());
+
+            for (int start = 0; start < images.size(); start += batchSize) {
+                final List<Bitmap> batch =
+                    images.subList(start, Math.min(images.size(), start + batchSize));
+                try {
+                    preprocess(batch, tensor);
+                } catch (IOException | IllegalArgumentException e) {
+                    Log.e(LOG_TAG, e.getMessage(), e);
+                    for (int i = 0; i < batch.size(); i++) {
+                        results.add(new String[0]);
+                    }
+                    continue;
+                }
+                results.addAll(execute(lease.inputs, batch.size(), topK));
+            }
+        } finally {
+            mInputs.giveBack(lease);
+        }
+        return results;
+    }
+
+    /**
+     * Classifies preprocessed .raw float files, batched like
+     * {@link #classify(List, int)}. Every file of a batch yields an empty result if
+     * one of them can not be read or does not match the input size.
+     *
+     * @return one result per file, in order.
+     */
+    public List<String[]> classifyRaw(List<File> rawImages, int topK) {
+        final List<String[]> results = new ArrayList<>(rawImages.size());
+        final TensorPool.Lease lease = mInputs.lease();
+        try {
+            final Tensor tensor = lease.tensor;
+            final int batchSize = ImagePreprocessor.getBatchSize(tensor.getShape());
+
+            for (int start = 0; start < rawImages.size(); start += batchSize) {
+                final List<File> batch =
+                    rawImages.subList(start, Math.min(rawImages.size(), start + batchSize));
+                final long preprocessStart = System.nanoTime();
+                try {
+                    mPreprocessor.writeRaw(batch, tensor);
+                } catch (IOException | IllegalArgumentException e) {
+                    Log.e(LOG_TAG, e.getMessage(), e);
+                    for (int i = 0; i < batch.size(); i++) {
+                        results.add(new String[0]);
+                    }
+                    continue;
+                }
+                record(InferenceMetrics.Stage.PREPROCESS, preprocessStart);
+                results.addAll(execute(lease.inputs, batch.size(), topK));
+            }
+        } finally {
+            mInputs.giveBack(lease);
+        }
+        return results;
+    }
+
+    /**
+     * Leases an input tensor for one inference, to be given back with
+     * {@link #giveBackInput(TensorPool.Lease)}.
+     */
+    public TensorPool.Lease leaseInput() {
+        return mInputs.lease();
+    }
+
+    public void giveBackInput(TensorPool.Lease lease) {
+        mInputs.giveBack(lease);
+    }
+
+    /**
+     * Writes the images, mean subtracted, into consecutive batch slots of the tensor.
+     *
+     * Images of another size than the input are scaled and center cropped to it.
+     *
+     * @throws IllegalArgumentException if the images do not fit in the tensor.
+     */
+    public void preprocess(List<Bitmap> images, Tensor tensor) throws IOException {
+        final int batchSize = ImagePreprocessor.getBatchSize(tensor.getShape());
+        long start = System.nanoTime();
+        final float[] meanImage = MeanImageCache.getInstance()
+            .get(mModel.meanImage, tensor.getSize() / batchSize);
+        record(InferenceMetrics.Stage.MEAN_IMAGE, start);
+
+        start = System.nanoTime();
+        mPreprocessor.write(images, meanImage, tensor);
+        record(InferenceMetrics.Stage.PREPROCESS, start);
+    }
+
+    /**
+     * Executes the network on preprocessed inputs and returns the results of the
+     * first {@code count} batch slots.
+     */
+    public List<String[]> execute(Map<String, Tensor> inputs, int count, int topK) {
+        final List<TopK> selected = executeTopK(inputs, count, topK);
+        final List<String[]> results = new ArrayList<>(count);
+        for (TopK top : selected) {
+            results.add(top != null ? toLabels(top) : new String[0]);
+        }
+        return results;
+    }
+
+    /**
+     * Like {@link #execute(Map, int, int)}, but returns the top class indices and
+     * scores of each slot, or null slots if the network produced no output.
+     */
+    public List<TopK> executeTopK(Map<String, Tensor> inputs, int count, int topK) {
+        final int batchSize = ImagePreprocessor.getBatchSize(inputs.get(INPUT_LAYER).getShape());
+        final List<TopK> results = new ArrayList<>(count);
+        final float[] scores;
+        long start;
+        synchronized (mEngine) {
+            start = System.nanoTime();
+            final Map<String, Tensor> outputs = mEngine.execute(inputs);
+            record(InferenceMetrics.Stage.EXECUTE, start);
+            final Tensor output = outputs.get(OUTPUT_LAYER);
+            if (output == null) {
+                for (int i = 0; i < count; i++) {
+                    results.add(null);
+                }
+                return results;
+            }
+            start = System.nanoTime();
+            scores = new float[output.getSize()];
+            output.read(scores, 0, scores.length);
+        }
+        final int classes = scores.length / batchSize;
+        for (int i = 0; i < count; i++) {
+            results.add(TopK.select(scores, i * classes, classes, topK));
+        }
+        record(InferenceMetrics.Stage.TOP_K, start);
+        return results;
+    }
+
+    /**
+     * Executes the network {@code runs} times on a zero input so that the first
+     * classification does not pay the first-run costs. The first execution is recorded
+     * as {@link InferenceMetrics.Stage#FIRST_EXECUTE}, the others as
+     * {@link InferenceMetrics.Stage#WARM_EXECUTE}.
+     */
+    public void warmUp(int runs) {
+        if (runs <= 0) {
+            return;
+        }
+        final TensorPool.Lease lease = mInputs.lease();
+        try {
+            final float[] zeros = new float[lease.tensor.getSize()];
+            lease.tensor.write(zeros, 0, zeros.length);
+            for (int i = 0; i < runs; i++) {
+                synchronized (mEngine) {
+                    final long start = System.nanoTime();
+                    mEngine.execute(lease.inputs);
+                    record(i == 0 ? InferenceMetrics.Stage.FIRST_EXECUTE
+                        : InferenceMetrics.Stage.WARM_EXECUTE, start);
+                }
+            }
+        } finally {
+            mInputs.giveBack(lease);
+        }
+    }
+
+    /**
+     * Converts the image into one input image worth of floats. Classifiers with the
+     * same {@link #getPreprocessingKey()} accept the same floats, so an image can be
+     * converted once for all of them.
+     */
+    public float[] convert(Bitmap image) throws IOException {
+        final int[] shape = getInputShape();
+        final int imageSize =
+            ImagePreprocessor.getSize(shape) / ImagePreprocessor.getBatchSize(shape);
+        long start = System.nanoTime();
+        final float[] meanImage = MeanImageCache.getInstance().get(mModel.meanImage, imageSize);
+        record(InferenceMetrics.Stage.MEAN_IMAGE, start);
+
+        start = System.nanoTime();
+        final float[] floats = new float[imageSize];
+        mPreprocessor.convert(Collections.singletonList(image), meanImage, shape, floats);
+        record(InferenceMetrics.Stage.PREPROCESS, start);
+        return floats;
+    }
+
+    /**
+     * Executes the network on one image converted by {@link #convert(Bitmap)}.
+     *
+     * @return the top classes, or null if the network produced no output.
+     */
+    public TopK execute(float[] image, int topK) {
+        final TensorPool.Lease lease = mInputs.lease();
+        try {
+            lease.tensor.write(image, 0, image.length);
+            return executeTopK(lease.inputs, 1, topK).get(0);
+        } finally {
+            mInputs.giveBack(lease);
+        }
+    }
+
+    /**
+     * Identifies how images are converted for this classifier: its input shape and
+     * mean image.
+     */
+    public String getPreprocessingKey() {
+        return Arrays.toString(getInputShape()) + '|' + mModel.meanImage.getAbsolutePath();
+    }
+
+    /**
+     * Returns the label of a class index, or the index itself if the model has no
+     * such label.
+     */
+    public String getLabel(int index) {
+        final LabelTable labels = mModel.getLabels();
+        return (labels != null && index < labels.size())
+            ? labels.get(index) : String.valueOf(index);
+    }
+
+    public Model getModel() {
+        return mModel;
+    }
+
+    private void record(InferenceMetrics.Stage stage, long startNanos) {
+        mMetrics.record(mModel.name, mRuntime, stage, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Turns top classes into a result of alternating label and score.
+     */
+    public String[] toLabels(TopK topK) {
+        final String[] result = new String[topK.size() * 2];
+        for (int i = 0; i < topK.size(); i++) {
+            result[2 * i] = getLabel(topK.indices[i]);
+            result[2 * i + 1] = String.valueOf(topK.scores[i]);
+        }
+        return result;
+    }
+
+    private int[] getInputShape() {
+        return mEngine.getInputShapes().get(INPUT_LAYER);
+    }
+}
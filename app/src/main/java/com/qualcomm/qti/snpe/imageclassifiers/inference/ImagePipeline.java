@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.graphics.Bitmap;
+
+import com.qualcomm.qti.snpe.imageclassifiers.engine.TensorPool;
+import com.qualcomm.qti.snpe.imageclassifiers.metrics.InferenceMetrics;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.StagedPipeline;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.TopK;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Classifies a sequence of image files with decode, preprocess, execute and
+ * post-process overlapping: the next batch is decoded and written into a spare
+ * input tensor while the network executes the current one.
+ *
+ * Items are network batches, so batched models still execute full batches.
+ */
+public class ImagePipeline {
+
+    /**
+     * Batches each stage may hand over before the next stage picks them up.
+     */
+    private static final int QUEUE_CAPACITY = 2;
+
+    /**
+     * Input tensors leased for a run: one executing, one queued for execution and
+     * one being written.
+     */
+    private static final int TENSOR_COUNT = QUEUE_CAPACITY + 1;
+
+    private final ImageClassifier mClassifier;
+
+    private final String mModelName;
+
+    private final int mTopK;
+
+    public ImagePipeline(ImageClassifier classifier, int topK) {
+        mClassifier = classifier;
+        mModelName = classifier.getModel().name;
+        mTopK = topK;
+    }
+
+    /**
+     * @return one result per image, in order, empty for images that could not be
+     * classified, and the statistics of the run.
+     */
+    public Result classify(File[] images) throws InterruptedException {
+        final int batchSize = mClassifier.getBatchSize();
+        final List<File[]> batches = new ArrayList<>();
+        for (int start = 0; start < images.length; start += batchSize) {
+            batches.add(Arrays.copyOfRange(images, start,
+                Math.min(images.length, start + batchSize)));
+        }
+
+        final BlockingQueue<TensorPool.Lease> tensors = new ArrayBlockingQueue<>(TENSOR_COUNT);
+        final List<TensorPool.Lease> leased = new ArrayList<>(TENSOR_COUNT);
+        try {
+            for (int i = 0; i < TENSOR_COUNT; i++) {
+                final TensorPool.Lease lease = mClassifier.leaseInput();
+                leased.add(lease);
+                tensors.add(lease);
+            }
+            final StagedPipeline.Result<String[][]> run = build(tensors).run(batches);
+
+            final List<String[]> results = new ArrayList<>(images.length);
+            for (int i = 0; i < batches.size(); i++) {
+                final String[][] labels = run.outputs.get(i);
+                for (int j = 0; j < batches.get(i).length; j++) {
+                    final boolean classified = labels != null && labels[j] != null;
+                    results.add(classified ? labels[j] : new String[0]);
+                }
+            }
+            return new Result(results, run);
+        } finally {
+            // The stage threads are done with the tensors once run() returns or throws.
+            for (TensorPool.Lease lease : leased) {
+                mClassifier.giveBackInput(lease);
+            }
+        }
+    }
+
+    private StagedPipeline<File[], String[][]> build(
+            final BlockingQueue<TensorPool.Lease> tensors) {
+        final int width = mClassifier.getInputWidth();
+        final int height = mClassifier.getInputHeight();
+        return StagedPipeline.Builder.<File[]>create(QUEUE_CAPACITY)
+            .then("decode", new StagedPipeline.Stage<File[], Batch>() {
+                @Override
+                public Batch process(File[] files) {
+                    final Batch batch = new Batch(files.length);
+                    for (int i = 0; i < files.length; i++) {
+                        final long start = System.nanoTime();
+                        final Bitmap bitmap = BitmapLoader.decode(files[i], width, height);
+                        InferenceMetrics.getInstance().record(mModelName,
+                            InferenceMetrics.ANY_RUNTIME, InferenceMetrics.Stage.DECODE,
+                            System.nanoTime() - start);
+                        if (bitmap != null) {
+                            batch.positions[batch.bitmaps.size()] = i;
+                            batch.bitmaps.add(bitmap);
+                        }
+                    }
+                    return batch;
+                }
+            })
+            .then("preprocess", new StagedPipeline.Stage<Batch, Batch>() {
+                @Override
+                public Batch process(Batch batch) throws Exception {
+                    if (batch.bitmaps.isEmpty()) {
+                        return batch;
+                    }
+                    batch.tensor = tensors.take();
+                    try {
+                        mClassifier.preprocess(batch.bitmaps, batch.tensor.tensor);
+                    } catch (Exception e) {
+                        tensors.add(batch.tensor);
+                        throw e;
+                    }
+                    return batch;
+                }
+            })
+            .then("execute", new StagedPipeline.Stage<Batch, Batch>() {
+                @Override
+                public Batch process(Batch batch) {
+                    if (batch.tensor == null) {
+                        return batch;
+                    }
+                    try {
+                        batch.tops = mClassifier.executeTopK(batch.tensor.inputs,
+                            batch.bitmaps.size(), mTopK);
+                    } finally {
+                        tensors.add(batch.tensor);
+                        batch.tensor = null;
+                    }
+                    return batch;
+                }
+            })
+            .then("post-process", new StagedPipeline.Stage<Batch, String[][]>() {
+                @Override
+                public String[][] process(Batch batch) {
+                    final String[][] labels = new String[batch.positions.length][];
+                    if (batch.tops == null) {
+                        return labels;
+                    }
+                    for (int i = 0; i < batch.tops.size(); i++) {
+                        final TopK top = batch.tops.get(i);
+                        labels[batch.positions[i]] =
+                            (top != null) ? mClassifier.toLabels(top) : new String[0];
+                    }
+                    return labels;
+                }
+            })
+            .build();
+    }
+
+    public static final class Result {
+        public final List<String[]> labels;
+        public final StagedPipeline.Result<String[][]> stats;
+
+        Result(List<String[]> labels, StagedPipeline.Result<String[][]> stats) {
+            this.labels = labels;
+            this.stats = stats;
+        }
+    }
+
+    private static final class Batch {
+        final List<Bitmap> bitmaps;
+        final int[] positions;
+        TensorPool.Lease tensor;
+        List<TopK> tops;
+
+        Batch(int size) {
+            bitmaps = new ArrayList<>(size);
+            positions = new int[size];
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.graphics.Bitmap;
+
+import com.qualcomm.qti.snpe.imageclassifiers.engine.Tensor;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.MappedFloats;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.ParallelPixelConverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Writes bitmaps into input tensors using pooled staging buffers.
+ *
+ * Buffers are kept per input shape, so steady state classification does not
+ * allocate, and the whole tensor is filled with a single bulk write. Large inputs
+ * are converted in parallel row bands, see {@link ParallelPixelConverter}. Preprocessed
+ * .raw files skip the conversion and are copied straight from their mapping.
+ */
+public class ImagePreprocessor {
+
+    private static final int MAX_POOLED_BUFFERS_PER_SHAPE = 4;
+
+    private static final ImagePreprocessor sInstance = new ImagePreprocessor();
+
+    private final ConcurrentMap<String, Queue<StagingBuffers>> mPools =
+        new ConcurrentHashMap<>();
+
+    private final ParallelPixelConverter mConverter = ParallelPixelConverter.getInstance();
+
+    public static ImagePreprocessor getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Converts the image to floats, subtracts the mean image and writes the result
+     * into the tensor. Images of another size than the input are scaled to cover it
+     * and center cropped on the way.
+     *
+     * @throws IllegalArgumentException if the mean image does not match the tensor
+     * shape.
+     */
+    public void write(Bitmap image, float[] meanImage, Tensor tensor) {
+        write(Collections.singletonList(image), meanImage, tensor);
+    }
+
+    /**
+     * Writes up to {@link #getBatchSize(int[])} images into consecutive batch slots of
+     * the tensor, with a single bulk write. Unused trailing slots hold undefined data.
+     *
+     * @throws IllegalArgumentException if the mean image does not match the tensor
+     * shape, or there are more images than batch slots.
+     */
+    public void write(List<Bitmap> images, float[] meanImage, Tensor tensor) {
+        final int[] shape = tensor.getShape();
+        final String key = Arrays.toString(shape);
+        final StagingBuffers buffers = acquire(key, shape, tensor.getSize());
+        try {
+            convert(images, meanImage, shape, buffers, buffers.floats);
+            tensor.write(buffers.floats, 0, buffers.floats.length);
+        } finally {
+            release(key, buffers);
+        }
+    }
+
+    /**
+     * Converts the images like {@link #write(List, float[], Tensor)} into
+     * {@code out}, one input image per slot, e.g. to write them into the tensors of
+     * several networks sharing the input shape and mean image.
+     *
+     * @param out at least {@code images.size()} input images worth of floats.
+     */
+    public void convert(List<Bitmap> images, float[] meanImage, int[] shape, float[] out) {
+        final String key = Arrays.toString(shape);
+        final StagingBuffers buffers = acquire(key, shape, getSize(shape));
+        try {
+            convert(images, meanImage, shape, buffers, out);
+        } finally {
+            release(key, buffers);
+        }
+    }
+
+    private void convert(List<Bitmap> images, float[] meanImage, int[] shape,
+                         StagingBuffers buffers, float[] out) {
+        final int height = shape[shape.length - 3];
+        final int width = shape[shape.length - 2];
+        final int channels = shape[shape.length - 1];
+        final int batchSize = getBatchSize(shape);
+        if (images.size() > batchSize) {
+            throw new IllegalArgumentException(images.size() + " images do not fit in input shape "
+                + Arrays.toString(shape));
+        }
+        final int imageSize = getSize(shape) / batchSize;
+        if (meanImage.length != imageSize) {
+            throw new IllegalArgumentException("Mean image size " + meanImage.length
+                + " does not match input size " + imageSize);
+        }
+
+        for (int i = 0; i < images.size(); i++) {
+            final Bitmap image = images.get(i);
+            final int imageWidth = image.getWidth();
+            final int imageHeight = image.getHeight();
+            final int[] pixels = buffers.pixels(imageWidth * imageHeight);
+            image.getPixels(pixels, 0, imageWidth, 0, 0, imageWidth, imageHeight);
+            mConverter.toFloat(pixels, imageWidth, imageHeight, channels, width, height,
+                meanImage, 0, out, i * imageSize);
+        }
+    }
+
+    /**
+     * Writes up to {@link #getBatchSize(int[])} preprocessed .raw float files into
+     * consecutive batch slots of the tensor, with a single bulk write. The files are
+     * memory-mapped and copied as is, without decoding or mean subtraction.
+     *
+     * @throws IllegalArgumentException if a file does not hold exactly one input
+     * image worth of floats, or there are more files than batch slots.
+     */
+    public void writeRaw(List<File> rawImages, Tensor tensor) throws IOException {
+        final int[] shape = tensor.getShape();
+        final int batchSize = getBatchSize(shape);
+        if (rawImages.size() > batchSize) {
+            throw new IllegalArgumentException(rawImages.size()
+                + " raw images do not fit in input shape " + Arrays.toString(shape));
+        }
+        final int imageSize = tensor.getSize() / batchSize;
+
+        final String key = Arrays.toString(shape);
+        final StagingBuffers buffers = acquire(key, shape, tensor.getSize());
+        try {
+            for (int i = 0; i < rawImages.size(); i++) {
+                final FloatBuffer floats = MappedFloats.map(rawImages.get(i));
+                if (floats.remaining() != imageSize) {
+                    throw new IllegalArgumentException("Raw image " + rawImages.get(i).getName()
+                        + " size " + floats.remaining() + " does not match input size "
+                        + imageSize);
+                }
+                floats.get(buffers.floats, i * imageSize, imageSize);
+            }
+            tensor.write(buffers.floats, 0, buffers.floats.length);
+        } finally {
+            release(key, buffers);
+        }
+    }
+
+    /**
+     * Returns the number of images a tensor of the given shape holds. Shapes without
+     * a leading batch dimension hold a single image.
+     */
+    public static int getBatchSize(int[] shape) {
+        return shape.length > 3 ? Math.max(1, shape[0]) : 1;
+    }
+
+    /**
+     * Returns the number of floats of a tensor of the given shape.
+     */
+    public static int getSize(int[] shape) {
+        int size = 1;
+        for (int dimension : shape) {
+            size *= dimension;
+        }
+        return size;
+    }
+
+    private StagingBuffers acquire(String key, int[] shape, int floatCount) {
+        final Queue<StagingBuffers> pool = mPools.get(key);
+        final StagingBuffers buffers = (pool != null) ? pool.poll() : null;
+        if (buffers != null) {
+            return buffers;
+        }
+        final int pixelCount = shape[shape.length - 3] * shape[shape.length - 2];
+        return new StagingBuffers(pixelCount, floatCount);
+    }
+
+    private void release(String key, StagingBuffers buffers) {
+        Queue<StagingBuffers> pool = mPools.get(key);
+        if (pool == null) {
+            pool = new ConcurrentLinkedQueue<>();
+            final Queue<StagingBuffers> existing = mPools.putIfAbsent(key, pool);
+            if (existing != null) {
+                pool = existing;
+            }
+        }
+        if (pool.size() < MAX_POOLED_BUFFERS_PER_SHAPE) {
+            pool.offer(buffers);
+        }
+    }
+
+    /**
+     * Drops every pooled buffer, e.g. when the system is low on memory.
+     */
+    public void trim() {
+        mPools.clear();
+    }
+
+    private static final class StagingBuffers {
+        private int[] mPixels;
+        final float[] floats;
+
+        StagingBuffers(int pixelCount, int floatCount) {
+            mPixels = new int[pixelCount];
+            floats = new float[floatCount];
+        }
+
+        /**
+         * Returns a pixel buffer of at least {@code count} pixels, growing it for
+         * images larger than the input.
+         */
+        int[] pixels(int count) {
+            if (mPixels.length < count) {
+                mPixels = new int[count];
+            }
+            return mPixels;
+        }
+    }
+}
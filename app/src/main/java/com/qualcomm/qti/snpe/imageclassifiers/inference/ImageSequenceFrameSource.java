@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.graphics.Bitmap;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays a sequence of image files as a continuous frame stream, looping over
+ * the images at a fixed frame interval.
+ */
+public class ImageSequenceFrameSource {
+
+    private static final String THREAD_NAME = ImageSequenceFrameSource.class.getSimpleName();
+
+    private final File[] mImages;
+
+    private final int mWidth;
+
+    private final int mHeight;
+
+    private final long mFrameIntervalMs;
+
+    private final StreamingClassifier mClassifier;
+
+    private volatile Thread mThread;
+
+    /**
+     * @param width images are decoded no larger than needed to cover width x height.
+     * @param frameIntervalMs delay between two frames, 0 to submit frames back to back.
+     */
+    public ImageSequenceFrameSource(File[] images, int width, int height, long frameIntervalMs,
+                                    StreamingClassifier classifier) {
+        mImages = images;
+        mWidth = width;
+        mHeight = height;
+        mFrameIntervalMs = frameIntervalMs;
+        mClassifier = classifier;
+    }
+
+    public synchronized void start() {
+        if (mThread != null) {
+            return;
+        }
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                replay();
+            }
+        }, THREAD_NAME);
+        mThread.start();
+    }
+
+    /**
+     * Stops producing frames without waiting for the frame being decoded or submitted,
+     * if any. The classifier drops frames submitted once it is stopped.
+     */
+    public synchronized void stop() {
+        if (mThread != null) {
+            mThread.interrupt();
+            mThread = null;
+        }
+    }
+
+    private void replay() {
+        final Thread self = Thread.currentThread();
+        final List<Bitmap> frames = new ArrayList<>(mImages.length);
+        for (File image : mImages) {
+            if (isStopped(self)) {
+                return;
+            }
+            final Bitmap bitmap = BitmapLoader.decode(image, mWidth, mHeight);
+            if (bitmap != null) {
+                frames.add(bitmap);
+            }
+        }
+        if (frames.isEmpty()) {
+            return;
+        }
+
+        int next = 0;
+        while (!isStopped(self)) {
+            mClassifier.submit(frames.get(next));
+            next = (next + 1) % frames.size();
+            if (mFrameIntervalMs > 0) {
+                try {
+                    Thread.sleep(mFrameIntervalMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean isStopped(Thread self) {
+        return mThread != self || self.isInterrupted();
+    }
+}
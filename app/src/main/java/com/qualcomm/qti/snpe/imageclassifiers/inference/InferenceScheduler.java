@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.os.AsyncTask;
+import android.os.Process;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs inference related tasks on dedicated worker threads, one per {@link Lane},
+ * instead of the process wide {@link AsyncTask#SERIAL_EXECUTOR}.
+ *
+ * Each lane has a bounded number of pending requests. A request submitted with the
+ * same key as a request that is still pending in the lane is coalesced into it and
+ * not executed. Pending requests that are superseded or pushed out of a full lane
+ * are cancelled, which delivers {@link AsyncTask#onCancelled(Object)} as usual.
+ */
+public class InferenceScheduler {
+
+    public enum Lane {
+        /**
+         * Network builds and runtime benchmarks. A new request supersedes every pending
+         * one, as only the latest requested network matters.
+         */
+        NETWORK_LOAD(Process.THREAD_PRIORITY_BACKGROUND, 1, true),
+
+        /**
+         * Classifications. When the lane is full the oldest pending request is dropped.
+         */
+        CLASSIFICATION(Process.THREAD_PRIORITY_DEFAULT, 4, false);
+
+        final int threadPriority;
+        final int capacity;
+        final boolean supersedes;
+
+        Lane(int threadPriority, int capacity, boolean supersedes) {
+            this.threadPriority = threadPriority;
+            this.capacity = capacity;
+            this.supersedes = supersedes;
+        }
+    }
+
+    private static final int MAX_WORKERS = 4;
+
+    private final Map<Lane, LaneExecutor> mLanes = new EnumMap<>(Lane.class);
+
+    private ExecutorService mWorkerPool;
+
+    public InferenceScheduler() {
+        for (Lane lane : Lane.values()) {
+            mLanes.put(lane, new LaneExecutor(lane));
+        }
+    }
+
+    /**
+     * Schedules the task on the lane.
+     *
+     * @param key identifies duplicate requests, or null if the request is never a
+     *            duplicate of another one.
+     * @return false if the task was coalesced into a pending request with the same key
+     * and will not run. Like a dropped task, it is cancelled and gets
+     * {@link AsyncTask#onCancelled()} to give back what it holds.
+     */
+    public <Params> boolean execute(Lane lane, Object key, AsyncTask<Params, ?, ?> task) {
+        return mLanes.get(lane).submit(key, task);
+    }
+
+    /**
+     * Returns the pool a running task fans its own work out to, e.g. one job per
+     * model of an ensemble. Tasks themselves are scheduled with
+     * {@link #execute(Lane, Object, AsyncTask)}.
+     */
+    public synchronized ExecutorService getWorkerPool() {
+        if (mWorkerPool == null) {
+            final int workers = Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors());
+            mWorkerPool = Executors.newFixedThreadPool(Math.max(2, workers), new ThreadFactory() {
+                private int mCount;
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    return new Thread(runnable, "Inference-WORKER-" + mCount++);
+                }
+            });
+        }
+        return mWorkerPool;
+    }
+
+    private static final class Request {
+        final Object key;
+        final AsyncTask<?, ?, ?> task;
+
+        Request(Object key, AsyncTask<?, ?, ?> task) {
+            this.key = key;
+            this.task = task;
+        }
+    }
+
+    private static final class LaneExecutor implements Executor {
+
+        private final Lane mLane;
+
+        private final ThreadPoolExecutor mExecutor;
+
+        private final Deque<Request> mPending = new ArrayDeque<>();
+
+        private final Map<Object, Request> mPendingByKey = new HashMap<>();
+
+        private Object mSubmittingKey;
+
+        private AsyncTask<?, ?, ?> mSubmittingTask;
+
+        LaneExecutor(final Lane lane) {
+            mLane = lane;
+            mExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        return new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Process.setThreadPriority(lane.threadPriority);
+                                runnable.run();
+                            }
+                        }, "Inference-" + lane.name());
+                    }
+                });
+        }
+
+        synchronized <Params> boolean submit(Object key, AsyncTask<Params, ?, ?> task) {
+            if (key != null && mPendingByKey.containsKey(key)) {
+                task.cancel(false);
+                return false;
+            }
+            if (mLane.supersedes) {
+                while (!mPending.isEmpty()) {
+                    cancel(mPending.peekFirst());
+                }
+            } else if (mPending.size() >= mLane.capacity) {
+                cancel(mPending.peekFirst());
+            }
+
+            mSubmittingKey = key;
+            mSubmittingTask = task;
+            try {
+                task.executeOnExecutor(this);
+            } finally {
+                mSubmittingKey = null;
+                mSubmittingTask = null;
+            }
+            return true;
+        }
+
+        /**
+         * Called by {@link AsyncTask#executeOnExecutor(Executor, Object[])} from within
+         * {@link #submit(Object, AsyncTask)}.
+         */
+        @Override
+        public synchronized void execute(final Runnable command) {
+            final Request request = new Request(mSubmittingKey, mSubmittingTask);
+            mPending.addLast(request);
+            if (request.key != null) {
+                mPendingByKey.put(request.key, request);
+            }
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (start(request)) {
+                        command.run();
+                    }
+                }
+            });
+        }
+
+        private synchronized boolean start(Request request) {
+            if (!mPending.remove(request)) {
+                return false;
+            }
+            if (request.key != null) {
+                mPendingByKey.remove(request.key);
+            }
+            return true;
+        }
+
+        private void cancel(Request request) {
+            mPending.remove(request);
+            if (request.key != null) {
+                mPendingByKey.remove(request.key);
+            }
+            if (request.task != null) {
+                request.task.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.qualcomm.qti.snpe.NeuralNetwork;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.TensorPool;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Application wide cache of built networks keyed by model file and runtime.
+ *
+ * Networks are reference counted: {@link #acquire(File, NeuralNetwork.Runtime)},
+ * {@link #acquire(NeuralNetwork)} and
+ * {@link #put(File, NeuralNetwork.Runtime, NeuralNetwork)} hand out a reference that
+ * must be given back with {@link #release(NeuralNetwork)}. Unreferenced networks stay
+ * cached until they have been idle for the idle timeout, or until the cached model
+ * sizes exceed the memory budget, least recently used first.
+ *
+ * Each cached network keeps a {@link TensorPool} of input tensors, released with it.
+ */
+public class NetworkCache {
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 60 * 1000;
+
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = 256 * 1024 * 1024;
+
+    /**
+     * Input tensors kept per network: the most a network has in flight is a
+     * classification next to an {@link ImagePipeline} run, which leases three.
+     */
+    public static final int POOLED_INPUTS = 4;
+
+    private final Map<String, Entry> mEntries = new LinkedHashMap<>(8, 0.75f, true);
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final long mIdleTimeoutMs;
+
+    private final long mMemoryBudgetBytes;
+
+    private long mCachedBytes;
+
+    private final Runnable mEvictIdle = new Runnable() {
+        @Override
+        public void run() {
+            evictIdle(SystemClock.elapsedRealtime() - mIdleTimeoutMs);
+        }
+    };
+
+    public NetworkCache() {
+        this(DEFAULT_IDLE_TIMEOUT_MS, DEFAULT_MEMORY_BUDGET_BYTES);
+    }
+
+    public NetworkCache(long idleTimeoutMs, long memoryBudgetBytes) {
+        mIdleTimeoutMs = idleTimeoutMs;
+        mMemoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    /**
+     * Returns a referenced cached network, or null if none is cached.
+     */
+    public synchronized NeuralNetwork acquire(File model, NeuralNetwork.Runtime runtime) {
+        final Entry entry = mEntries.get(key(model, runtime));
+        if (entry == null) {
+            return null;
+        }
+        entry.references++;
+        return entry.network;
+    }
+
+    /**
+     * Adds a reference to a network already referenced from this cache, for work that
+     * holds on to the network beyond the reference it was handed, e.g. queued tasks.
+     *
+     * @throws IllegalArgumentException if the network is not cached.
+     */
+    public synchronized NeuralNetwork acquire(NeuralNetwork network) {
+        final Entry entry = find(network);
+        if (entry == null) {
+            throw new IllegalArgumentException("The network is not cached.");
+        }
+        entry.references++;
+        return network;
+    }
+
+    /**
+     * Caches a freshly built network and returns a reference to the cached network.
+     * If another caller cached the same key in the meantime the given network is
+     * released and the already cached one is returned instead.
+     */
+    public synchronized NeuralNetwork put(File model, NeuralNetwork.Runtime runtime,
+                                          NeuralNetwork network) {
+        final String key = key(model, runtime);
+        final Entry existing = mEntries.get(key);
+        if (existing != null) {
+            if (existing.network != network) {
+                network.release();
+            }
+            existing.references++;
+            return existing.network;
+        }
+
+        final Entry entry = new Entry(network, model.length());
+        entry.references = 1;
+        mEntries.put(key, entry);
+        mCachedBytes += entry.sizeBytes;
+        trimToBudget();
+        return network;
+    }
+
+    /**
+     * Drops a reference obtained from this cache. Networks unknown to the cache are
+     * released right away.
+     */
+    public synchronized void release(NeuralNetwork network) {
+        final Entry entry = find(network);
+        if (entry == null) {
+            network.release();
+            return;
+        }
+        if (entry.references > 0) {
+            entry.references--;
+        }
+        if (entry.references == 0) {
+            entry.idleSince = SystemClock.elapsedRealtime();
+            trimToBudget();
+            mHandler.removeCallbacks(mEvictIdle);
+            mHandler.postDelayed(mEvictIdle, mIdleTimeoutMs);
+        }
+    }
+
+    /**
+     * Returns the input tensor pool of a network referenced from this cache. Networks
+     * unknown to the cache get a pool creating a tensor per inference.
+     */
+    public synchronized TensorPool getTensorPool(NeuralNetwork network) {
+        final Entry entry = find(network);
+        if (entry == null) {
+            return new TensorPool(new SnpeEngine(network), ImageClassifier.INPUT_LAYER, 0);
+        }
+        if (entry.inputs == null) {
+            entry.inputs = new TensorPool(new SnpeEngine(network), ImageClassifier.INPUT_LAYER,
+                POOLED_INPUTS);
+        }
+        return entry.inputs;
+    }
+
+    /**
+     * Releases every network that is not currently referenced.
+     */
+    public synchronized void trim() {
+        evictIdle(Long.MAX_VALUE);
+    }
+
+    private synchronized void evictIdle(long idleBefore) {
+        boolean hasIdle = false;
+        final Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.references > 0) {
+                continue;
+            }
+            if (entry.idleSince <= idleBefore) {
+                iterator.remove();
+                evict(entry);
+            } else {
+                hasIdle = true;
+            }
+        }
+        if (hasIdle) {
+            mHandler.removeCallbacks(mEvictIdle);
+            mHandler.postDelayed(mEvictIdle, mIdleTimeoutMs);
+        }
+    }
+
+    private void trimToBudget() {
+        final Iterator<Entry> iterator = mEntries.values().iterator();
+        while (mCachedBytes > mMemoryBudgetBytes && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.references == 0) {
+                iterator.remove();
+                evict(entry);
+            }
+        }
+    }
+
+    private void evict(Entry entry) {
+        mCachedBytes -= entry.sizeBytes;
+        if (entry.inputs != null) {
+            entry.inputs.release();
+        }
+        entry.network.release();
+    }
+
+    private Entry find(NeuralNetwork network) {
+        for (Entry entry : mEntries.values()) {
+            if (entry.network == network) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static String key(File model, NeuralNetwork.Runtime runtime) {
+        return model.getAbsolutePath() + "#" + runtime.name();
+    }
+
+    private static final class Entry {
+        final NeuralNetwork network;
+        final long sizeBytes;
+        int references;
+        long idleSince;
+        TensorPool inputs;
+
+        Entry(NeuralNetwork network, long sizeBytes) {
+            this.network = network;
+            this.sizeBytes = sizeBytes;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import com.qualcomm.qti.snpe.NeuralNetwork;
+import com.qualcomm.qti.snpe.imageclassifiers.Model;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.PixelHash;
+
+/**
+ * Application wide cache of classification results, evicting the least recently
+ * used results first.
+ *
+ * Results are keyed by the content of the image rather than the bitmap instance,
+ * so a duplicate image hits as well, plus the model file, its modification time,
+ * the runtime and K.
+ */
+public class ResultCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final LruCache<Key, String[]> mCache;
+
+    public ResultCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public ResultCache(int maxEntries) {
+        mCache = new LruCache<>(maxEntries);
+    }
+
+    /**
+     * Hashes the pixels of the image, one row at a time.
+     */
+    public static Key keyOf(Bitmap image, Model model, NeuralNetwork.Runtime runtime, int topK) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int[] row = new int[width];
+        long hash = PixelHash.SEED;
+        for (int y = 0; y < height; y++) {
+            image.getPixels(row, 0, width, 0, y, width, 1);
+            hash = PixelHash.update(hash, row, 0, width);
+        }
+        return new Key(PixelHash.finish(hash, width, height),
+            model.file.getAbsolutePath() + '@' + model.file.lastModified(), runtime, topK);
+    }
+
+    /**
+     * @return the cached result, which must not be modified, or null.
+     */
+    public String[] get(Key key) {
+        return mCache.get(key);
+    }
+
+    /**
+     * Caches a result. Empty results are failures and are not cached.
+     */
+    public void put(Key key, String[] result) {
+        if (result.length > 0) {
+            mCache.put(key, result);
+        }
+    }
+
+    /**
+     * Evicts results according to the {@link ComponentCallbacks2} trim level: half of
+     * the cache when memory runs low in the foreground, all of it when memory is
+     * critical in the foreground or the process is likely to be killed next.
+     */
+    public void trim(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+            || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mCache.evictAll();
+        } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+        }
+    }
+
+    public int hitCount() {
+        return mCache.hitCount();
+    }
+
+    public int missCount() {
+        return mCache.missCount();
+    }
+
+    public int evictionCount() {
+        return mCache.evictionCount();
+    }
+
+    /**
+     * Returns the fraction of lookups that hit, 0 before the first lookup.
+     */
+    public float hitRate() {
+        final int hits = hitCount();
+        final int lookups = hits + missCount();
+        return lookups > 0 ? (float) hits / lookups : 0.f;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache{" + mCache.size() + "/" + mCache.maxSize() + " entries, hits="
+            + hitCount() + ", misses=" + missCount() + ", evictions=" + evictionCount()
+            + ", hitRate=" + hitRate() + "}";
+    }
+
+    public static final class Key {
+        final long pixelHash;
+        final String model;
+        final NeuralNetwork.Runtime runtime;
+        final int topK;
+
+        Key(long pixelHash, String model, NeuralNetwork.Runtime runtime, int topK) {
+            this.pixelHash = pixelHash;
+            this.model = model;
+            this.runtime = runtime;
+            this.topK = topK;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return pixelHash == other.pixelHash && topK == other.topK
+                && runtime == other.runtime && model.equals(other.model);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = (int) (pixelHash ^ (pixelHash >>> 32));
+            hash = hash * 31 + model.hashCode();
+            hash = hash * 31 + runtime.hashCode();
+            return hash * 31 + topK;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the runtime with the lowest p95 latency by timing a few inferences on each.
+ *
+ * The benchmark only talks to an {@link Engine}, so it does not depend on SNPE and
+ * can be exercised against a stand-in engine.
+ *
+ * @param <R> runtime identifier.
+ */
+public class RuntimeBenchmark<R> {
+
+    public static final int DEFAULT_WARM_UP_RUNS = 2;
+
+    public static final int DEFAULT_MEASURED_RUNS = 10;
+
+    /**
+     * Opens a session on a runtime, or throws if the runtime can not be used.
+     */
+    public interface Engine<R> {
+        Session open(R runtime) throws Exception;
+    }
+
+    public interface Session {
+        /**
+         * Runs one inference.
+         */
+        void run() throws Exception;
+
+        void close();
+    }
+
+    public static final class Result<R> {
+        public final R runtime;
+        public final long p50Nanos;
+        public final long p95Nanos;
+
+        Result(R runtime, long p50Nanos, long p95Nanos) {
+            this.runtime = runtime;
+            this.p50Nanos = p50Nanos;
+            this.p95Nanos = p95Nanos;
+        }
+
+        @Override
+        public String toString() {
+            return runtime + " p50=" + p50Nanos / 1000 + "us p95=" + p95Nanos / 1000 + "us";
+        }
+    }
+
+    private final int mWarmUpRuns;
+
+    private final int mMeasuredRuns;
+
+    public RuntimeBenchmark() {
+        this(DEFAULT_WARM_UP_RUNS, DEFAULT_MEASURED_RUNS);
+    }
+
+    public RuntimeBenchmark(int warmUpRuns, int measuredRuns) {
+        if (measuredRuns <= 0) {
+            throw new IllegalArgumentException("measuredRuns must be positive: " + measuredRuns);
+        }
+        mWarmUpRuns = warmUpRuns;
+        mMeasuredRuns = measuredRuns;
+    }
+
+    /**
+     * Benchmarks every runtime and returns the fastest one by p95 latency, or null if
+     * none of them could run.
+     */
+    public Result<R> select(List<R> runtimes, Engine<R> engine) {
+        Result<R> best = null;
+        for (R runtime : runtimes) {
+            final Result<R> result = measure(runtime, engine);
+            if (result != null && (best == null || result.p95Nanos < best.p95Nanos)) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Times the runtime, or returns null if it failed to open or run.
+     */
+    public Result<R> measure(R runtime, Engine<R> engine) {
+        final Session session;
+        try {
+            session = engine.open(runtime);
+        } catch (Exception e) {
+            return null;
+        }
+        try {
+            for (int i = 0; i < mWarmUpRuns; i++) {
+                session.run();
+            }
+            final long[] samples = new long[mMeasuredRuns];
+            for (int i = 0; i < mMeasuredRuns; i++) {
+                final long start = System.nanoTime();
+                session.run();
+                samples[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(samples);
+            return new Result<>(runtime, percentile(samples, 0.50), percentile(samples, 0.95));
+        } catch (Exception e) {
+            return null;
+        } finally {
+            session.close();
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import com.qualcomm.qti.snpe.NeuralNetwork;
+import com.qualcomm.qti.snpe.imageclassifiers.Model;
+
+/**
+ * Persists the automatically selected runtime per model and device.
+ *
+ * A decision is keyed by the model file size and mtime and the device build
+ * fingerprint, so a new model or a system update triggers a new benchmark. Stored
+ * decisions also expire after {@link #REVALIDATE_AFTER_MS}.
+ */
+public class RuntimeSelectionStore {
+
+    public static final long REVALIDATE_AFTER_MS = 7L * 24 * 60 * 60 * 1000;
+
+    private static final String PREFERENCES_NAME = "runtime_selection";
+
+    private static final String RUNTIME_SUFFIX = ".runtime";
+
+    private static final String TIMESTAMP_SUFFIX = ".timestamp";
+
+    private final SharedPreferences mPreferences;
+
+    public RuntimeSelectionStore(Context context) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Returns the stored runtime for the model, or null if there is none or it is
+     * due for revalidation.
+     */
+    public NeuralNetwork.Runtime get(Model model) {
+        final String key = key(model);
+        final String runtime = mPreferences.getString(key + RUNTIME_SUFFIX, null);
+        final long timestamp = mPreferences.getLong(key + TIMESTAMP_SUFFIX, 0);
+        if (runtime == null || System.currentTimeMillis() - timestamp > REVALIDATE_AFTER_MS) {
+            return null;
+        }
+        try {
+            return NeuralNetwork.Runtime.valueOf(runtime);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public void put(Model model, NeuralNetwork.Runtime runtime) {
+        final String key = key(model);
+        mPreferences.edit()
+            .putString(key + RUNTIME_SUFFIX, runtime.name())
+            .putLong(key + TIMESTAMP_SUFFIX, System.currentTimeMillis())
+            .apply();
+    }
+
+    private static String key(Model model) {
+        return model.name + "|" + model.file.length() + "|" + model.file.lastModified()
+            + "|" + Build.FINGERPRINT;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import com.qualcomm.qti.snpe.FloatTensor;
+import com.qualcomm.qti.snpe.NeuralNetwork;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.InferenceEngine;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.Tensor;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link InferenceEngine} backed by an SNPE {@link NeuralNetwork}.
+ *
+ * The network lifecycle stays with its owner, usually the {@link NetworkCache}:
+ * {@link #release()} releases the network and is only for engines owning theirs.
+ *
+ * Input maps from {@link #createInputs(String, Tensor)} carry their SNPE input map,
+ * which is handed to the network as is, and the output map and its tensors are reused
+ * for as long as the network returns the same output tensors.
+ */
+public class SnpeEngine implements InferenceEngine {
+
+    private final NeuralNetwork mNetwork;
+
+    private final Map<String, Tensor> mOutputs = new HashMap<>();
+
+    private final Map<String, Tensor> mOutputsView = Collections.unmodifiableMap(mOutputs);
+
+    public SnpeEngine(NeuralNetwork network) {
+        mNetwork = network;
+    }
+
+    public NeuralNetwork getNetwork() {
+        return mNetwork;
+    }
+
+    @Override
+    public Map<String, int[]> getInputShapes() {
+        return mNetwork.getInputTensorsShapes();
+    }
+
+    @Override
+    public Set<String> getOutputLayers() {
+        return mNetwork.getOutputLayers();
+    }
+
+    @Override
+    public String getModelVersion() {
+        return mNetwork.getModelVersion();
+    }
+
+    @Override
+    public Tensor createTensor(int... shape) {
+        return new SnpeTensor(mNetwork.createFloatTensor(shape));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the tensor was not created by an SNPE engine.
+     */
+    @Override
+    public Map<String, Tensor> createInputs(String layer, Tensor tensor) {
+        return new SnpeInputs(layer, toSnpeTensor(layer, tensor));
+    }
+
+    /**
+     * Returns the output map of this engine, rewritten by the next execution.
+     *
+     * @throws IllegalArgumentException if an input was not created by an SNPE engine.
+     */
+    @Override
+    public synchronized Map<String, Tensor> execute(Map<String, Tensor> inputs) {
+        final Map<String, FloatTensor> floatInputs;
+        if (inputs instanceof SnpeInputs) {
+            floatInputs = ((SnpeInputs) inputs).mFloatInputs;
+        } else {
+            floatInputs = new HashMap<>(inputs.size() * 2);
+            for (Map.Entry<String, Tensor> input : inputs.entrySet()) {
+                floatInputs.put(input.getKey(),
+                    toSnpeTensor(input.getKey(), input.getValue()).mTensor);
+            }
+        }
+        final Map<String, FloatTensor> floatOutputs = mNetwork.execute(floatInputs);
+        if (mOutputs.size() != floatOutputs.size()) {
+            mOutputs.clear();
+        }
+        for (Map.Entry<String, FloatTensor> output : floatOutputs.entrySet()) {
+            final SnpeTensor tensor = (SnpeTensor) mOutputs.get(output.getKey());
+            if (tensor == null || tensor.mTensor != output.getValue()) {
+                mOutputs.put(output.getKey(), new SnpeTensor(output.getValue()));
+            }
+        }
+        return mOutputsView;
+    }
+
+    @Override
+    public void release() {
+        mNetwork.release();
+    }
+
+    private static SnpeTensor toSnpeTensor(String layer, Tensor tensor) {
+        if (!(tensor instanceof SnpeTensor)) {
+            throw new IllegalArgumentException("Input " + layer + " is not an SNPE tensor.");
+        }
+        return (SnpeTensor) tensor;
+    }
+
+    private static final class SnpeInputs extends AbstractMap<String, Tensor> {
+
+        private final Map<String, Tensor> mInputs;
+
+        private final Map<String, FloatTensor> mFloatInputs;
+
+        SnpeInputs(String layer, SnpeTensor tensor) {
+            mInputs = Collections.<String, Tensor>singletonMap(layer, tensor);
+            mFloatInputs = Collections.singletonMap(layer, tensor.mTensor);
+        }
+
+        @Override
+        public Tensor get(Object key) {
+            return mInputs.get(key);
+        }
+
+        @Override
+        public Set<Entry<String, Tensor>> entrySet() {
+            return mInputs.entrySet();
+        }
+    }
+
+    private static final class SnpeTensor implements Tensor {
+
+        private final FloatTensor mTensor;
+
+        SnpeTensor(FloatTensor tensor) {
+            mTensor = tensor;
+        }
+
+        @Override
+        public int[] getShape() {
+            return mTensor.getShape();
+        }
+
+        @Override
+        public int getSize() {
+            return mTensor.getSize();
+        }
+
+        @Override
+        public void write(float[] values, int offset, int length) {
+            mTensor.write(values, offset, length);
+        }
+
+        @Override
+        public int read(float[] values, int offset, int length) {
+            return mTensor.read(values, offset, length);
+        }
+
+        @Override
+        public void release() {
+            mTensor.release();
+        }
+    }
+}
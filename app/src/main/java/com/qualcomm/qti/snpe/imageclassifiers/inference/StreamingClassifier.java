@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.inference;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.qualcomm.qti.snpe.imageclassifiers.engine.TensorPool;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Classifies a continuous stream of frames, always running the most recent one.
+ *
+ * Frames are preprocessed on the submitting thread into a small ring of reusable
+ * input tensors, while a dedicated thread executes the network. When the network
+ * falls behind, a preprocessed frame that was not picked up yet is replaced by the
+ * newer one and counted as dropped. Results and statistics are delivered on the
+ * main thread.
+ *
+ * Executions go through the classifier, so they are serialized with every other
+ * classification sharing its engine.
+ */
+public class StreamingClassifier {
+
+    private static final String LOG_TAG = StreamingClassifier.class.getSimpleName();
+
+    /**
+     * One tensor executing, one waiting to execute and one being filled.
+     */
+    private static final int RING_SIZE = 3;
+
+    private static final long STATS_WINDOW_NS = 1000 * 1000 * 1000;
+
+    public interface Listener {
+        void onFrameClassified(String[] result);
+
+        void onStatsUpdated(Stats stats);
+
+        /**
+         * Called when an execution failed, after which the stream stops by itself. Not
+         * called for a stream that was stopped already.
+         */
+        void onStreamFailed();
+
+        /**
+         * Called once the stream is stopped and every input tensor is given back, from
+         * then on the network may be released.
+         */
+        void onStopped();
+    }
+
+    public static final class Stats {
+        public final long submittedFrames;
+        public final long classifiedFrames;
+        public final long droppedFrames;
+        public final float framesPerSecond;
+
+        Stats(long submittedFrames, long classifiedFrames, long droppedFrames,
+              float framesPerSecond) {
+            this.submittedFrames = submittedFrames;
+            this.classifiedFrames = classifiedFrames;
+            this.droppedFrames = droppedFrames;
+            this.framesPerSecond = framesPerSecond;
+        }
+
+        public float getDropRate() {
+            return submittedFrames > 0 ? (float) droppedFrames / submittedFrames : 0.f;
+        }
+    }
+
+    private final ImageClassifier mClassifier;
+
+    private final int mTopK;
+
+    private final Listener mListener;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final Deque<Slot> mFreeSlots = new ArrayDeque<>(RING_SIZE);
+
+    private Slot mPendingSlot;
+
+    private Thread mWorker;
+
+    private boolean mRunning;
+
+    private int mLeasedSlots;
+
+    private long mSubmittedFrames;
+
+    private long mClassifiedFrames;
+
+    private long mDroppedFrames;
+
+    private long mWindowStart;
+
+    private long mWindowFrames;
+
+    private float mFramesPerSecond;
+
+    public StreamingClassifier(ImageClassifier classifier, int topK, Listener listener) {
+        mClassifier = classifier;
+        mTopK = topK;
+        mListener = listener;
+    }
+
+    public synchronized void start() {
+        if (mRunning) {
+            return;
+        }
+        for (int i = 0; i < RING_SIZE; i++) {
+            mFreeSlots.add(new Slot(mClassifier.leaseInput()));
+        }
+        mLeasedSlots += RING_SIZE;
+        mRunning = true;
+        mWindowStart = System.nanoTime();
+        mWorker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                executeFrames();
+            }
+        }, LOG_TAG);
+        mWorker.start();
+    }
+
+    /**
+     * Stops the stream without waiting for the frame being executed, if any. Input
+     * tensors still in use are given back when they are done with, after which
+     * {@link Listener#onStopped()} is called.
+     */
+    public void stop() {
+        stopRunning();
+    }
+
+    /**
+     * @return false if the stream was already stopped.
+     */
+    private synchronized boolean stopRunning() {
+        if (!mRunning) {
+            return false;
+        }
+        mRunning = false;
+        mWorker = null;
+        notifyAll();
+        if (mPendingSlot != null) {
+            mFreeSlots.add(mPendingSlot);
+            mPendingSlot = null;
+        }
+        while (!mFreeSlots.isEmpty()) {
+            giveBack(mFreeSlots.poll());
+        }
+        return true;
+    }
+
+    /**
+     * Preprocesses the frame on the calling thread and queues it as the latest frame.
+     * Frames are dropped when every input tensor is in use.
+     */
+    public void submit(Bitmap frame) {
+        final Slot slot;
+        synchronized (this) {
+            if (!mRunning) {
+                return;
+            }
+            mSubmittedFrames++;
+            slot = mFreeSlots.poll();
+            if (slot == null) {
+                mDroppedFrames++;
+                return;
+            }
+        }
+
+        boolean filled = false;
+        try {
+            mClassifier.preprocess(Collections.singletonList(frame), slot.lease.tensor);
+            filled = true;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(LOG_TAG, e.getMessage(), e);
+        }
+
+        synchronized (this) {
+            if (!filled || !mRunning) {
+                if (!filled) {
+                    mDroppedFrames++;
+                }
+                recycle(slot);
+                return;
+            }
+            if (mPendingSlot != null) {
+                mDroppedFrames++;
+                mFreeSlots.add(mPendingSlot);
+            }
+            mPendingSlot = slot;
+            notifyAll();
+        }
+    }
+
+    private void executeFrames() {
+        final Thread self = Thread.currentThread();
+        while (true) {
+            final Slot slot;
+            synchronized (this) {
+                while (mWorker == self && mPendingSlot == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (mWorker != self) {
+                    return;
+                }
+                slot = mPendingSlot;
+                mPendingSlot = null;
+            }
+
+            List<String[]> results = null;
+            try {
+                results = mClassifier.execute(slot.lease.inputs, 1, mTopK);
+            } catch (RuntimeException e) {
+                Log.e(LOG_TAG, "Execution failed, stopping the stream.", e);
+            } finally {
+                synchronized (this) {
+                    recycle(slot);
+                }
+            }
+            if (results == null) {
+                if (!stopRunning()) {
+                    return;
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mListener.onStreamFailed();
+                    }
+                });
+                return;
+            }
+
+            final Stats stats;
+            synchronized (this) {
+                mClassifiedFrames++;
+                stats = updateStats();
+            }
+            deliver(results.get(0), stats);
+        }
+    }
+
+    private void recycle(Slot slot) {
+        if (mRunning) {
+            mFreeSlots.add(slot);
+        } else {
+            giveBack(slot);
+        }
+    }
+
+    private void giveBack(Slot slot) {
+        mClassifier.giveBackInput(slot.lease);
+        if (--mLeasedSlots == 0) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mListener.onStopped();
+                }
+            });
+        }
+    }
+
+    private Stats updateStats() {
+        mWindowFrames++;
+        final long now = System.nanoTime();
+        final long elapsed = now - mWindowStart;
+        if (elapsed >= STATS_WINDOW_NS) {
+            mFramesPerSecond = mWindowFrames * 1e9f / elapsed;
+            mWindowStart = now;
+            mWindowFrames = 0;
+            return new Stats(mSubmittedFrames, mClassifiedFrames, mDroppedFrames,
+                mFramesPerSecond);
+        }
+        return null;
+    }
+
+    private void deliver(final String[] result, final Stats stats) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mListener.onFrameClassified(result);
+                if (stats != null) {
+                    mListener.onStatsUpdated(stats);
+                }
+            }
+        });
+    }
+
+    private static final class Slot {
+        final TensorPool.Lease lease;
+
+        Slot(TensorPool.Lease lease) {
+            this.lease = lease;
+        }
+    }
+}
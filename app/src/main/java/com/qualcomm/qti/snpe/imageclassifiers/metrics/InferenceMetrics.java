@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process wide per-stage latency histograms, keyed by model, runtime and stage.
+ *
+ * Stages are timed by the caller with {@link System#nanoTime()} and recorded here;
+ * {@link #snapshot()} returns the current percentiles of every recorded key.
+ */
+public final class InferenceMetrics {
+
+    /**
+     * Runtime name for stages that do not depend on the runtime, such as decoding.
+     */
+    public static final String ANY_RUNTIME = "ANY";
+
+    public enum Stage {
+        DECODE,
+        RESULT_CACHE,
+        MEAN_IMAGE,
+        PREPROCESS,
+        EXECUTE,
+        TOP_K,
+        NETWORK_BUILD,
+
+        /**
+         * The first execution of a freshly built network, paying the runtime's one-off
+         * setup costs.
+         */
+        FIRST_EXECUTE,
+
+        /**
+         * Warm-up executions after the first, the steady state to compare it against.
+         */
+        WARM_EXECUTE
+    }
+
+    private static final InferenceMetrics sInstance = new InferenceMetrics();
+
+    private final ConcurrentMap<Key, LatencyHistogram> mHistograms = new ConcurrentHashMap<>();
+
+    public static InferenceMetrics getInstance() {
+        return sInstance;
+    }
+
+    public void record(String model, String runtime, Stage stage, long nanos) {
+        histogram(model, runtime, stage).recordNanos(nanos);
+    }
+
+    public LatencyHistogram histogram(String model, String runtime, Stage stage) {
+        final Key key = new Key(model, runtime, stage);
+        LatencyHistogram histogram = mHistograms.get(key);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            final LatencyHistogram existing = mHistograms.putIfAbsent(key, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    public List<StageSnapshot> snapshot() {
+        final List<StageSnapshot> snapshots = new ArrayList<>(mHistograms.size());
+        for (Map.Entry<Key, LatencyHistogram> entry : mHistograms.entrySet()) {
+            final Key key = entry.getKey();
+            snapshots.add(new StageSnapshot(key.model, key.runtime, key.stage,
+                entry.getValue().snapshot()));
+        }
+        return snapshots;
+    }
+
+    public void reset() {
+        mHistograms.clear();
+    }
+
+    public static final class StageSnapshot {
+        public final String model;
+        public final String runtime;
+        public final Stage stage;
+        public final LatencyHistogram.Snapshot latency;
+
+        StageSnapshot(String model, String runtime, Stage stage,
+                      LatencyHistogram.Snapshot latency) {
+            this.model = model;
+            this.runtime = runtime;
+            this.stage = stage;
+            this.latency = latency;
+        }
+
+        @Override
+        public String toString() {
+            return model + "/" + runtime + "/" + stage + ": " + latency;
+        }
+    }
+
+    private static final class Key {
+        final String model;
+        final String runtime;
+        final Stage stage;
+
+        Key(String model, String runtime, Stage stage) {
+            this.model = model;
+            this.runtime = runtime;
+            this.stage = stage;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return model.equals(other.model) && runtime.equals(other.runtime)
+                && stage == other.stage;
+        }
+
+        @Override
+        public int hashCode() {
+            return (model.hashCode() * 31 + runtime.hashCode()) * 31 + stage.hashCode();
+        }
+    }
+}
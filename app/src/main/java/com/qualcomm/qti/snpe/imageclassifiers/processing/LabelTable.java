@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.processing;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Model labels, one per line of a UTF-8 labels file.
+ *
+ * The file is kept as a single byte blob with the offset of every line, and a
+ * label is only decoded to a {@link String} when it is looked up.
+ */
+public final class LabelTable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] mBlob;
+
+    /**
+     * Line i spans {@code [mOffsets[2 * i], mOffsets[2 * i + 1])} of the blob.
+     */
+    private final int[] mOffsets;
+
+    private final int mSize;
+
+    LabelTable(byte[] blob) {
+        mBlob = blob;
+        int[] offsets = new int[64];
+        int size = 0;
+        int start = 0;
+        for (int i = 0; i <= blob.length; i++) {
+            final boolean end = i == blob.length;
+            if (!end && blob[i] != '\n' && blob[i] != '\r') {
+                continue;
+            }
+            if (end && start == blob.length) {
+                break;
+            }
+            if (offsets.length < 2 * size + 2) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[2 * size] = start;
+            offsets[2 * size + 1] = i;
+            size++;
+            if (!end && blob[i] == '\r' && i + 1 < blob.length && blob[i + 1] == '\n') {
+                i++;
+            }
+            start = i + 1;
+        }
+        mOffsets = offsets;
+        mSize = size;
+    }
+
+    /**
+     * Reads a labels file. Lines end with {@code \n}, {@code \r} or {@code \r\n}.
+     */
+    public static LabelTable load(File labelsFile) throws IOException {
+        return new LabelTable(readBytes(labelsFile));
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Decodes the label of the given index.
+     *
+     * @throws IndexOutOfBoundsException if there is no such label.
+     */
+    public String get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Label " + index + " of " + mSize);
+        }
+        final int start = mOffsets[2 * index];
+        return new String(mBlob, start, mOffsets[2 * index + 1] - start, UTF_8);
+    }
+
+    byte[] blob() {
+        return mBlob;
+    }
+
+    static byte[] readBytes(File file) throws IOException {
+        final byte[] bytes = new byte[(int) file.length()];
+        final DataInputStream inputStream = new DataInputStream(new FileInputStream(file));
+        try {
+            inputStream.readFully(bytes);
+        } finally {
+            inputStream.close();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.processing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Process wide cache of label tables.
+ *
+ * Labels files with identical content, e.g. models trained on the same dataset,
+ * share a single {@link LabelTable}. A file is read again when its size or
+ * modification time changes on disk.
+ */
+public final class LabelTableCache {
+
+    private static final LabelTableCache sInstance = new LabelTableCache();
+
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    private final Map<Long, List<LabelTable>> mTablesByChecksum = new HashMap<>();
+
+    public static LabelTableCache getInstance() {
+        return sInstance;
+    }
+
+    public synchronized LabelTable get(File labelsFile) throws IOException {
+        final String key = labelsFile.getAbsolutePath();
+        final long lastModified = labelsFile.lastModified();
+        final long length = labelsFile.length();
+        final Entry entry = mEntries.get(key);
+        if (entry != null && entry.lastModified == lastModified && entry.length == length) {
+            return entry.table;
+        }
+
+        final LabelTable table = intern(LabelTable.readBytes(labelsFile));
+        mEntries.put(key, new Entry(lastModified, length, table));
+        return table;
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+        mTablesByChecksum.clear();
+    }
+
+    private LabelTable intern(byte[] blob) {
+        final CRC32 crc = new CRC32();
+        crc.update(blob, 0, blob.length);
+        final Long checksum = crc.getValue();
+        List<LabelTable> tables = mTablesByChecksum.get(checksum);
+        if (tables == null) {
+            tables = new ArrayList<>(1);
+            mTablesByChecksum.put(checksum, tables);
+        }
+        for (LabelTable table : tables) {
+            if (Arrays.equals(table.blob(), blob)) {
+                return table;
+            }
+        }
+        final LabelTable table = new LabelTable(blob);
+        tables.add(table);
+        return table;
+    }
+
+    private static final class Entry {
+        final long lastModified;
+        final long length;
+        final LabelTable table;
+
+        Entry(long lastModified, long length, LabelTable table) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.table = table;
+        }
+    }
+}
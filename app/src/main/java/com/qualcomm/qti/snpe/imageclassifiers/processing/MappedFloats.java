@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.processing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-maps files of native order 32 bit floats, such as mean images and
+ * preprocessed .raw input tensors.
+ */
+public final class MappedFloats {
+
+    public static final int FLOAT_SIZE = 4;
+
+    private MappedFloats() {}
+
+    /**
+     * Maps the whole file read-only. The mapping stays valid after this returns.
+     *
+     * @throws IOException if the file can not be mapped or its size is not a
+     * multiple of {@link #FLOAT_SIZE}.
+     */
+    public static FloatBuffer map(File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final long length = channel.size();
+            if (length % FLOAT_SIZE != 0) {
+                throw new IOException(file + " is not a float file, size " + length);
+            }
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return mapped.order(ByteOrder.nativeOrder()).asFloatBuffer().asReadOnlyBuffer();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
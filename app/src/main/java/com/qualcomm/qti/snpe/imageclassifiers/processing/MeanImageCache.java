@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.processing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process wide cache of mean images.
+ *
+ * Each mean image file is memory-mapped and read once into an array shared
+ * read-only by every inference on the model, so conversions subtract it without
+ * copying it. An entry is read again when the file size or modification time
+ * changes on disk.
+ */
+public final class MeanImageCache {
+
+    private static final MeanImageCache sInstance = new MeanImageCache();
+
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    private final Map<Integer, float[]> mZeroImages = new HashMap<>();
+
+    public static MeanImageCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Returns the mean image floats. The array is shared and must not be modified.
+     *
+     * @param meanImage the mean image file.
+     * @param size number of floats in the input tensor, used when the model has
+     *             no mean image.
+     * @return zeros if the file does not exist.
+     */
+    public synchronized float[] get(File meanImage, int size) throws IOException {
+        if (!meanImage.isFile()) {
+            mEntries.remove(meanImage.getAbsolutePath());
+            return getZeroImage(size);
+        }
+
+        final String key = meanImage.getAbsolutePath();
+        final long lastModified = meanImage.lastModified();
+        final long length = meanImage.length();
+        Entry entry = mEntries.get(key);
+        if (entry == null || entry.lastModified != lastModified || entry.length != length) {
+            entry = new Entry(lastModified, length, read(meanImage));
+            mEntries.put(key, entry);
+        }
+        return entry.floats;
+    }
+
+    /**
+     * Drops the mapping of the given file, if any.
+     */
+    public synchronized void invalidate(File meanImage) {
+        mEntries.remove(meanImage.getAbsolutePath());
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+        mZeroImages.clear();
+    }
+
+    private float[] getZeroImage(int size) {
+        float[] zeros = mZeroImages.get(size);
+        if (zeros == null) {
+            zeros = new float[size];
+            mZeroImages.put(size, zeros);
+        }
+        return zeros;
+    }
+
+    private static float[] read(File meanImage) throws IOException {
+        final FloatBuffer mapped = MappedFloats.map(meanImage);
+        final float[] floats = new float[mapped.remaining()];
+        mapped.get(floats);
+        return floats;
+    }
+
+    private static final class Entry {
+        final long lastModified;
+        final long length;
+        final float[] floats;
+
+        Entry(long lastModified, long length, float[] floats) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.floats = floats;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.processing;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Unpacks a zipped model (dlc, labels, mean image and sample images) into a
+ * model directory.
+ *
+ * Entries are extracted in parallel into a temporary sibling directory, checked
+ * against the CRCs of the archive and listed in a completion marker, before the
+ * directory is swapped in for the model directory. A model directory without a valid
+ * marker is the leftover of an interrupted extraction.
+ *
+ * The previous model directory is moved aside before the new one is renamed into
+ * place, so an extraction interrupted in between can be completed or rolled back
+ * with {@link #recover(File)}.
+ */
+public final class ModelArchiveExtractor {
+
+    /**
+     * Name of the completion marker, one {@code name size crc mtime} line per file.
+     */
+    public static final String MARKER_FILE_NAME = ".extracted";
+
+    /**
+     * Prefix of the temporary extraction directories, which are not models.
+     */
+    public static final String TEMP_PREFIX = ".";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final String OLD_SUFFIX = ".old";
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final int MAX_THREADS = 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ModelArchiveExtractor() {}
+
+    /**
+     * Extracts every entry of the archive into {@code modelRoot}, replacing any
+     * previous content, using up to one thread per core.
+     */
+    public static void extract(File archive, File modelRoot) throws IOException {
+        extract(archive, modelRoot,
+            Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public static void extract(File archive, File modelRoot, int threads) throws IOException {
+        final File temp = sibling(modelRoot, TEMP_SUFFIX);
+        delete(temp);
+        doCreateDirectory(temp);
+
+        final String tempPath = temp.getCanonicalPath() + File.separator;
+        final ZipFile zipFile = new ZipFile(archive);
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            final List<Future<String>> extracted = new ArrayList<>();
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry zipEntry = entries.nextElement();
+                final File entry = new File(temp, zipEntry.getName());
+                if (!entry.getCanonicalPath().startsWith(tempPath)) {
+                    throw new IOException("Entry outside of the model directory: "
+                        + zipEntry.getName());
+                }
+                if (zipEntry.isDirectory()) {
+                    doCreateDirectory(entry);
+                } else {
+                    doCreateDirectory(entry.getParentFile());
+                    extracted.add(executor.submit(new EntryExtraction(zipFile, zipEntry, entry)));
+                }
+            }
+
+            final StringBuilder marker = new StringBuilder();
+            for (Future<String> future : extracted) {
+                marker.append(future.get()).append('\n');
+            }
+            writeMarker(new File(temp, MARKER_FILE_NAME), marker.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Extraction interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            zipFile.close();
+        }
+
+        final File old = sibling(modelRoot, OLD_SUFFIX);
+        delete(old);
+        if (modelRoot.exists()) {
+            rename(modelRoot, old);
+        }
+        rename(temp, modelRoot);
+        delete(old);
+    }
+
+    /**
+     * Completes or rolls back an extraction interrupted while swapping the model
+     * directory: if the model directory is missing, the new extraction is moved in if
+     * it was completed, the previous model directory otherwise.
+     */
+    public static void recover(File modelRoot) throws IOException {
+        if (modelRoot.exists()) {
+            delete(sibling(modelRoot, OLD_SUFFIX));
+            return;
+        }
+        final File temp = sibling(modelRoot, TEMP_SUFFIX);
+        final File old = sibling(modelRoot, OLD_SUFFIX);
+        if (isExtracted(temp)) {
+            rename(temp, modelRoot);
+            delete(old);
+        } else if (old.isDirectory()) {
+            rename(old, modelRoot);
+        }
+    }
+
+    /**
+     * Returns true if the directory holds a completed extraction: the completion
+     * marker exists and every file it lists has the recorded size and modification
+     * time, so files rewritten or truncated since the extraction are detected without
+     * reading them back.
+     */
+    public static boolean isExtracted(File modelRoot) {
+        final File marker = new File(modelRoot, MARKER_FILE_NAME);
+        if (!marker.isFile()) {
+            return false;
+        }
+        try {
+            final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(marker), UTF_8));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final int crcEnd = line.lastIndexOf(' ');
+                    final int sizeEnd = line.lastIndexOf(' ', crcEnd - 1);
+                    final int nameEnd = line.lastIndexOf(' ', sizeEnd - 1);
+                    if (nameEnd <= 0) {
+                        return false;
+                    }
+                    final File file = new File(modelRoot, line.substring(0, nameEnd));
+                    final long size = Long.parseLong(line.substring(nameEnd + 1, sizeEnd));
+                    final long lastModified = Long.parseLong(line.substring(crcEnd + 1));
+                    if (!file.isFile() || file.length() != size
+                        || file.lastModified() != lastModified) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Copies the stream into a file with large buffered channel writes. The stream
+     * is closed when this method returns.
+     */
+    public static void copy(InputStream inputStream, File file) throws IOException {
+        final ReadableByteChannel in = Channels.newChannel(inputStream);
+        try {
+            final FileOutputStream outputStream = new FileOutputStream(file);
+            try {
+                final FileChannel out = outputStream.getChannel();
+                final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            } finally {
+                outputStream.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static final class EntryExtraction implements Callable<String> {
+
+        private final ZipFile mZipFile;
+
+        private final ZipEntry mZipEntry;
+
+        private final File mFile;
+
+        EntryExtraction(ZipFile zipFile, ZipEntry zipEntry, File file) {
+            mZipFile = zipFile;
+            mZipEntry = zipEntry;
+            mFile = file;
+        }
+
+        /**
+         * @return the marker line of the entry.
+         */
+        @Override
+        public String call() throws IOException {
+            final CRC32 crc = new CRC32();
+            long size = 0;
+            final InputStream inputStream = mZipFile.getInputStream(mZipEntry);
+            try {
+                final FileOutputStream outputStream = new FileOutputStream(mFile);
+                try {
+                    final FileChannel out = outputStream.getChannel();
+                    final byte[] chunk = new byte[BUFFER_SIZE];
+                    final ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                    int read;
+                    while ((read = inputStream.read(chunk)) != -1) {
+                        crc.update(chunk, 0, read);
+                        buffer.clear().limit(read);
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer);
+                        }
+                        size += read;
+                    }
+                    out.force(false);
+                } finally {
+                    outputStream.close();
+                }
+            } finally {
+                inputStream.close();
+            }
+
+            if (mZipEntry.getCrc() != -1 && mZipEntry.getCrc() != crc.getValue()) {
+                throw new IOException("CRC mismatch for " + mZipEntry.getName());
+            }
+            return mZipEntry.getName() + ' ' + size + ' ' + Long.toHexString(crc.getValue())
+                + ' ' + mFile.lastModified();
+        }
+    }
+
+    private static void writeMarker(File marker, String content) throws IOException {
+        final FileOutputStream outputStream = new FileOutputStream(marker);
+        try {
+            final Writer writer = new OutputStreamWriter(outputStream, UTF_8);
+            writer.write(content);
+            writer.flush();
+            outputStream.getFD().sync();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static File sibling(File modelRoot, String suffix) {
+        return new File(modelRoot.getParentFile(), TEMP_PREFIX + modelRoot.getName() + suffix);
+    }
+
+    private static void rename(File from, File to) throws IOException {
+        if (!from.renameTo(to)) {
+            throw new IOException("Can not rename " + from + " to " + to);
+        }
+    }
+
+    private static void doCreateDirectory(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create directory: " + directory.getAbsolutePath());
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Can not delete " + file.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Converts images with {@link PixelConverter}, splitting large images into bands of
+ * destination rows converted concurrently, each band writing its own region of the
+ * output. Images below the pixel threshold are converted on the calling thread,
+ * where the hand-off would cost more than it saves.
+ */
+public final class ParallelPixelConverter {
+
+    /**
+     * Destination pixels from which the conversion is split, about 320x320.
+     */
+    public static final int DEFAULT_MIN_PARALLEL_PIXELS = 100 * 1024;
+
+    private static final int MIN_BAND_ROWS = 16;
+
+    private static final int MAX_THREADS = 4;
+
+    private static final ParallelPixelConverter sInstance = new ParallelPixelConverter(
+        Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()),
+        DEFAULT_MIN_PARALLEL_PIXELS);
+
+    private final int mThreads;
+
+    private final int mMinParallelPixels;
+
+    private final ExecutorService mExecutor;
+
+    /**
+     * @param threads bands converted at once, the calling thread included.
+     * @param minParallelPixels destination pixels from which the conversion is split.
+     */
+    public ParallelPixelConverter(int threads, int minParallelPixels) {
+        mThreads = Math.max(1, threads);
+        mMinParallelPixels = minParallelPixels;
+        mExecutor = (mThreads > 1) ? Executors.newFixedThreadPool(mThreads - 1,
+            new ThreadFactory() {
+                private int mCount;
+
+                @Override
+                public synchronized Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "PixelConverter-" + mCount++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }) : null;
+    }
+
+    public static ParallelPixelConverter getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Converts an image to floats, mean subtracted. An image of the destination size
+     * is converted as is, any other is scaled to cover it and center cropped.
+     *
+     * @see PixelConverter#resizeCropToFloat(int[], int, int, int, int, int, float[], int,
+     * float[], int)
+     */
+    public void toFloat(final int[] pixels, final int srcWidth, final int srcHeight,
+                        final int channels, final int dstWidth, final int dstHeight,
+                        final float[] mean, final int meanOffset, final float[] out,
+                        final int outOffset) {
+        final int bands = Math.min(mThreads, dstHeight / MIN_BAND_ROWS);
+        if (bands <= 1 || dstWidth * dstHeight < mMinParallelPixels) {
+            convert(pixels, srcWidth, srcHeight, channels, dstWidth, dstHeight, 0, dstHeight,
+                mean, meanOffset, out, outOffset);
+            return;
+        }
+
+        final List<Future<?>> futures = new ArrayList<>(bands - 1);
+        for (int band = 1; band < bands; band++) {
+            final int rowStart = band * dstHeight / bands;
+            final int rowEnd = (band + 1) * dstHeight / bands;
+            futures.add(mExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    convert(pixels, srcWidth, srcHeight, channels, dstWidth, dstHeight,
+                        rowStart, rowEnd, mean, meanOffset, out, outOffset);
+                }
+            }));
+        }
+        RuntimeException failure = null;
+        try {
+            convert(pixels, srcWidth, srcHeight, channels, dstWidth, dstHeight,
+                0, dstHeight / bands, mean, meanOffset, out, outOffset);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        // Every band must be done before the caller reuses the buffers.
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = new RuntimeException(e.getCause());
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void convert(int[] pixels, int srcWidth, int srcHeight, int channels,
+                                int dstWidth, int dstHeight, int rowStart, int rowEnd,
+                                float[] mean, int meanOffset, float[] out, int outOffset) {
+        if (srcWidth != dstWidth || srcHeight != dstHeight) {
+            PixelConverter.resizeCropToFloat(pixels, srcWidth, srcHeight, channels,
+                dstWidth, dstHeight, rowStart, rowEnd, mean, meanOffset, out, outOffset);
+            return;
+        }
+        final int pixelOffset = rowStart * dstWidth;
+        final int pixelCount = (rowEnd - rowStart) * dstWidth;
+        final int floatOffset = pixelOffset * channels;
+        if (channels == PixelConverter.GRAYSCALE_CHANNELS) {
+            PixelConverter.grayscaleToFloat(pixels, pixelOffset, pixelCount,
+                mean, meanOffset + floatOffset, out, outOffset + floatOffset);
+        } else {
+            PixelConverter.rgbToFloat(pixels, pixelOffset, pixelCount,
+                mean, meanOffset + floatOffset, out, outOffset + floatOffset);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.processing;
+
+/**
+ * Converts packed ARGB pixels into the float layout expected by the networks
+ * input tensor, subtracting the model mean image on the way.
+ *
+ * All methods work on caller-provided arrays and do not allocate.
+ */
+public final class PixelConverter {
+
+    public static final int RGB_CHANNELS = 3;
+
+    public static final int GRAYSCALE_CHANNELS = 1;
+
+    /**
+     * Grayscale weights {@code 0.3 r + 0.59 g + 0.11 b} in 16.16 fixed point,
+     * rounded so that they still sum to exactly 1.
+     */
+    private static final int GRAY_R = 19661;
+    private static final int GRAY_G = 38666;
+    private static final int GRAY_B = 7209;
+
+    private static final float FIXED_POINT_ONE = 1.f / 65536;
+
+    private PixelConverter() {}
+
+    /**
+     * Writes {@code pixelCount} pixels as interleaved {b, g, r} floats.
+     *
+     * @param pixels ARGB pixels.
+     * @param pixelOffset index of the first pixel to convert.
+     * @param pixelCount number of pixels to convert.
+     * @param mean mean image floats.
+     * @param meanOffset index of the mean float matching the first written float.
+     * @param out destination floats.
+     * @param outOffset index of the first float to write.
+     */
+    public static void rgbToFloat(int[] pixels, int pixelOffset, int pixelCount,
+                                  float[] mean, int meanOffset, float[] out, int outOffset) {
+        int m = meanOffset;
+        int o = outOffset;
+        final int end = pixelOffset + pixelCount;
+        for (int i = pixelOffset; i < end; i++) {
+            final int rgb = pixels[i];
+            out[o++] = ((rgb)       & 0xFF) - mean[m++];
+            out[o++] = ((rgb >>  8) & 0xFF) - mean[m++];
+            out[o++] = ((rgb >> 16) & 0xFF) - mean[m++];
+        }
+    }
+
+    /**
+     * Writes {@code pixelCount} pixels as single grayscale floats.
+     *
+     * The weighted sum is computed in integer fixed point, which is exact, and
+     * scaled to a float once per pixel. Rounding the weights keeps every grayscale
+     * value within 0.002 of {@code r * 0.3 + g * 0.59 + b * 0.11} computed in double
+     * precision.
+     *
+     * @see #rgbToFloat(int[], int, int, float[], int, float[], int)
+     */
+    public static void grayscaleToFloat(int[] pixels, int pixelOffset, int pixelCount,
+                                        float[] mean, int meanOffset, float[] out,
+                                        int outOffset) {
+        int m = meanOffset;
+        int o = outOffset;
+        final int end = pixelOffset + pixelCount;
+        for (int i = pixelOffset; i < end; i++) {
+            out[o++] = grayscale(pixels[i]) * FIXED_POINT_ONE - mean[m++];
+        }
+    }
+
+    /**
+     * Scales the image to cover {@code dstWidth x dstHeight}, crops the center and
+     * writes the result as floats in a single pass, with bilinear sampling.
+     *
+     * Bilinear sampling only looks at the 4 nearest source pixels, so the source
+     * should be less than twice the destination size, e.g. decoded with a matching
+     * sample size.
+     *
+     * Grayscale output interpolates the fixed point grayscale of the source pixels,
+     * so it matches {@link #grayscaleToFloat(int[], int, int, float[], int, float[], int)}
+     * wherever the destination falls on a source pixel.
+     *
+     * @param pixels ARGB pixels, {@code srcWidth} per row.
+     * @param channels {@link #RGB_CHANNELS} for {b, g, r} floats or
+     *                 {@link #GRAYSCALE_CHANNELS} for grayscale floats.
+     * @see #rgbToFloat(int[], int, int, float[], int, float[], int)
+     */
+    public static void resizeCropToFloat(int[] pixels, int srcWidth, int srcHeight,
+                                         int channels, int dstWidth, int dstHeight,
+                                         float[] mean, int meanOffset, float[] out,
+                                         int outOffset) {
+        resizeCropToFloat(pixels, srcWidth, srcHeight, channels, dstWidth, dstHeight,
+            0, dstHeight, mean, meanOffset, out, outOffset);
+    }
+
+    /**
+     * Like {@link #resizeCropToFloat(int[], int, int, int, int, int, float[], int,
+     * float[], int)}, but only writes the destination rows {@code [rowStart, rowEnd)},
+     * so bands of rows can be converted concurrently. Offsets still refer to the
+     * first destination row.
+     */
+    public static void resizeCropToFloat(int[] pixels, int srcWidth, int srcHeight,
+                                         int channels, int dstWidth, int dstHeight,
+                                         int rowStart, int rowEnd, float[] mean,
+                                         int meanOffset, float[] out, int outOffset) {
+        final float scale = Math.max((float) dstWidth / srcWidth, (float) dstHeight / srcHeight);
+        final float step = 1.f / scale;
+        final float left = (srcWidth - dstWidth * step) / 2.f;
+        final float top = (srcHeight - dstHeight * step) / 2.f;
+        final boolean grayscale = channels == GRAYSCALE_CHANNELS;
+
+        final int rowSize = dstWidth * channels;
+        int m = meanOffset + rowStart * rowSize;
+        int o = outOffset + rowStart * rowSize;
+        for (int dy = rowStart; dy < rowEnd; dy++) {
+            final float sy = clamp(top + (dy + 0.5f) * step - 0.5f, srcHeight - 1);
+            final int y0 = (int) sy;
+            final float fy = sy - y0;
+            final int row0 = y0 * srcWidth;
+            final int row1 = Math.min(y0 + 1, srcHeight - 1) * srcWidth;
+
+            for (int dx = 0; dx < dstWidth; dx++) {
+                final float sx = clamp(left + (dx + 0.5f) * step - 0.5f, srcWidth - 1);
+                final int x0 = (int) sx;
+                final int x1 = Math.min(x0 + 1, srcWidth - 1);
+                final float fx = sx - x0;
+
+                final int p00 = pixels[row0 + x0];
+                final int p01 = pixels[row0 + x1];
+                final int p10 = pixels[row1 + x0];
+                final int p11 = pixels[row1 + x1];
+                if (grayscale) {
+                    final float gray = bilinear(grayscale(p00), grayscale(p01),
+                        grayscale(p10), grayscale(p11), fx, fy);
+                    out[o++] = gray * FIXED_POINT_ONE - mean[m++];
+                } else {
+                    out[o++] = bilinear(p00, p01, p10, p11, 0, fx, fy) - mean[m++];
+                    out[o++] = bilinear(p00, p01, p10, p11, 8, fx, fy) - mean[m++];
+                    out[o++] = bilinear(p00, p01, p10, p11, 16, fx, fy) - mean[m++];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the grayscale of an ARGB pixel in 16.16 fixed point.
+     */
+    private static int grayscale(int rgb) {
+        return ((rgb)       & 0xFF) * GRAY_B
+             + ((rgb >>  8) & 0xFF) * GRAY_G
+             + ((rgb >> 16) & 0xFF) * GRAY_R;
+    }
+
+    private static float bilinear(int p00, int p01, int p10, int p11, int shift,
+                                  float fx, float fy) {
+        return bilinear((p00 >> shift) & 0xFF, (p01 >> shift) & 0xFF,
+            (p10 >> shift) & 0xFF, (p11 >> shift) & 0xFF, fx, fy);
+    }
+
+    private static float bilinear(int c00, int c01, int c10, int c11, float fx, float fy) {
+        final float upper = c00 + (c01 - c00) * fx;
+        final float lower = c10 + (c11 - c10) * fx;
+        return upper + (lower - upper) * fy;
+    }
+
+    private static float clamp(float value, int max) {
+        return value < 0.f ? 0.f : (value > max ? max : value);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.processing;
+
+/**
+ * Fast 64 bit hash of packed ARGB pixels, for recognizing identical images.
+ *
+ * Not cryptographic: images are fed one row at a time with {@link #update}, one
+ * multiply per pixel, and the result is mixed with the dimensions by
+ * {@link #finish}.
+ */
+public final class PixelHash {
+
+    public static final long SEED = 0xcbf29ce484222325L;
+
+    private static final long MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    private PixelHash() {}
+
+    public static long hash(int[] pixels, int width, int height) {
+        return finish(update(SEED, pixels, 0, width * height), width, height);
+    }
+
+    public static long update(long hash, int[] pixels, int offset, int length) {
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            hash = (hash ^ (pixels[i] & 0xffffffffL)) * MULTIPLIER;
+        }
+        return hash;
+    }
+
+    public static long finish(long hash, int width, int height) {
+        hash ^= ((long) width << 32) | (height & 0xffffffffL);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.processing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Runs items through a chain of stages, each stage on its own thread, so that
+ * consecutive items overlap: item i + 1 is in one stage while item i is in the next.
+ *
+ * Stages hand items over through bounded queues, so a slow stage holds back the
+ * stages before it instead of letting work pile up. An item failing in a stage, with
+ * any exception or error, skips the remaining stages and yields a null output.
+ *
+ * @param <I> input item type.
+ * @param <O> output item type.
+ */
+public final class StagedPipeline<I, O> {
+
+    public interface Stage<A, B> {
+        B process(A item) throws Exception;
+    }
+
+    public static final class StageStats {
+        public final String name;
+        public final int items;
+        public final long busyNanos;
+
+        /**
+         * Fraction of the run the stage spent processing items.
+         */
+        public final float occupancy;
+
+        StageStats(String name, int items, long busyNanos, long wallNanos) {
+            this.name = name;
+            this.items = items;
+            this.busyNanos = busyNanos;
+            this.occupancy = wallNanos > 0 ? (float) busyNanos / wallNanos : 0.f;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d items, %.1f ms busy, %.0f%%", name, items,
+                busyNanos / 1e6, occupancy * 100);
+        }
+    }
+
+    public static final class Result<O> {
+        /**
+         * One output per input, in order, null for failed or cancelled items.
+         */
+        public final List<O> outputs;
+
+        /**
+         * Items that failed in a stage or were not run because of {@link #cancel()}.
+         */
+        public final int failures;
+
+        public final long wallNanos;
+        public final List<StageStats> stages;
+
+        Result(List<O> outputs, int failures, long wallNanos, List<StageStats> stages) {
+            this.outputs = outputs;
+            this.failures = failures;
+            this.wallNanos = wallNanos;
+            this.stages = stages;
+        }
+
+        /**
+         * Returns the end-to-end throughput in items per second.
+         */
+        public float getThroughput() {
+            return wallNanos > 0 ? outputs.size() * 1e9f / wallNanos : 0.f;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d items in %.1f ms, %.1f items/s, %d failed, %s",
+                outputs.size(), wallNanos / 1e6, getThroughput(), failures, stages);
+        }
+    }
+
+    private static final Envelope END = new Envelope(-1, null);
+
+    private final String[] mNames;
+
+    private final Stage<?, ?>[] mStages;
+
+    private final int mQueueCapacity;
+
+    private volatile boolean mCancelled;
+
+    private StagedPipeline(List<String> names, List<Stage<Object, Object>> stages,
+                           int queueCapacity) {
+        mNames = names.toArray(new String[names.size()]);
+        mStages = stages.toArray(new Stage<?, ?>[stages.size()]);
+        mQueueCapacity = queueCapacity;
+    }
+
+    /**
+     * Stops feeding inputs into the pipeline. Items already in it are completed.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    /**
+     * Runs the inputs through every stage and waits for the last output.
+     *
+     * @throws InterruptedException if the calling thread is interrupted, in which
+     * case the stage threads are interrupted as well and have exited when this throws.
+     */
+    public Result<O> run(final List<? extends I> inputs) throws InterruptedException {
+        final int stageCount = mStages.length;
+        final List<BlockingQueue<Envelope>> queues = new ArrayList<>(stageCount);
+        for (int i = 0; i < stageCount; i++) {
+            queues.add(new ArrayBlockingQueue<Envelope>(mQueueCapacity));
+        }
+        final int[] items = new int[stageCount];
+        final long[] busyNanos = new long[stageCount];
+        final Thread[] threads = new Thread[stageCount];
+        final long start = System.nanoTime();
+        for (int i = 0; i < stageCount; i++) {
+            final int stage = i;
+            final BlockingQueue<Envelope> in = (i > 0) ? queues.get(i - 1) : null;
+            final BlockingQueue<Envelope> out = queues.get(i);
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    boolean interrupted = false;
+                    try {
+                        if (in == null) {
+                            for (int index = 0; index < inputs.size() && !mCancelled; index++) {
+                                out.put(process(stage, new Envelope(index, inputs.get(index)),
+                                    items, busyNanos));
+                            }
+                        } else {
+                            Envelope envelope;
+                            while ((envelope = in.take()) != END) {
+                                out.put(process(stage, envelope, items, busyNanos));
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        // The run was interrupted, every stage thread is.
+                        interrupted = true;
+                    } finally {
+                        // Even a stage thread dying of an error ends the stream, the items
+                        // it did not hand over count as failed.
+                        if (!interrupted) {
+                            try {
+                                out.put(END);
+                            } catch (InterruptedException e) {
+                                // The run was interrupted, nobody waits for the end.
+                            }
+                        }
+                    }
+                }
+            }, "Pipeline-" + mNames[i]);
+            threads[i].start();
+        }
+
+        final Object[] outputs = new Object[inputs.size()];
+        int completed = 0;
+        int failures = 0;
+        try {
+            final BlockingQueue<Envelope> last = queues.get(stageCount - 1);
+            Envelope envelope;
+            while ((envelope = last.take()) != END) {
+                if (envelope.failed) {
+                    failures++;
+                } else {
+                    outputs[envelope.index] = envelope.value;
+                }
+                completed++;
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            joinUninterruptibly(threads);
+            throw e;
+        }
+        final long wallNanos = System.nanoTime() - start;
+
+        // Each stage only counts its own slot, published to this thread by join().
+        final List<StageStats> stats = new ArrayList<>(stageCount);
+        for (int i = 0; i < stageCount; i++) {
+            stats.add(new StageStats(mNames[i], items[i], busyNanos[i], wallNanos));
+        }
+        failures += inputs.size() - completed;
+        @SuppressWarnings("unchecked")
+        final List<O> list = (List<O>) Collections.unmodifiableList(Arrays.asList(outputs));
+        return new Result<>(list, failures, wallNanos, Collections.unmodifiableList(stats));
+    }
+
+    private Envelope process(int stage, Envelope envelope, int[] items, long[] busyNanos) {
+        if (envelope.failed) {
+            return envelope;
+        }
+        final long start = System.nanoTime();
+        @SuppressWarnings("unchecked")
+        final Stage<Object, Object> current = (Stage<Object, Object>) mStages[stage];
+        Envelope result;
+        try {
+            result = new Envelope(envelope.index, current.process(envelope.value));
+        } catch (Throwable t) {
+            if (t instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            result = new Envelope(envelope.index, t);
+            result.failed = true;
+        }
+        items[stage]++;
+        busyNanos[stage] += System.nanoTime() - start;
+        return result;
+    }
+
+    private static void joinUninterruptibly(Thread[] threads) {
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Envelope {
+        final int index;
+        final Object value;
+        boolean failed;
+
+        Envelope(int index, Object value) {
+            this.index = index;
+            this.value = value;
+        }
+    }
+
+    /**
+     * @param <I> input item type of the pipeline.
+     * @param <O> output item type of the last stage added.
+     */
+    public static final class Builder<I, O> {
+
+        private final List<String> mNames = new ArrayList<>();
+
+        private final List<Stage<Object, Object>> mStages = new ArrayList<>();
+
+        private final int mQueueCapacity;
+
+        private Builder(int queueCapacity) {
+            mQueueCapacity = queueCapacity;
+        }
+
+        /**
+         * @param queueCapacity items each stage may have handed over and not yet
+         *                      picked up by the next stage.
+         */
+        public static <I> Builder<I, I> create(int queueCapacity) {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("Queue capacity must be positive: "
+                    + queueCapacity);
+            }
+            return new Builder<>(queueCapacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <N> Builder<I, N> then(String name, Stage<? super O, N> stage) {
+            mNames.add(name);
+            mStages.add((Stage<Object, Object>) (Stage<?, ?>) stage);
+            return (Builder<I, N>) this;
+        }
+
+        /**
+         * @throws IllegalStateException if no stage was added.
+         */
+        public StagedPipeline<I, O> build() {
+            if (mStages.isEmpty()) {
+                throw new IllegalStateException("A pipeline needs at least one stage.");
+            }
+            return new StagedPipeline<>(mNames, mStages, mQueueCapacity);
+        }
+    }
+}
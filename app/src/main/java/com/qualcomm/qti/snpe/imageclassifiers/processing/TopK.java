@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.processing;
+
+/**
+ * The K highest scores of a network output, sorted by descending score.
+ *
+ * Selection keeps a bounded min-heap of K candidates, so it costs O(n log k)
+ * and works for any float range, including negative logits. Ties are broken
+ * in favour of the lower index. NaN scores are ignored.
+ */
+public final class TopK {
+
+    public final int[] indices;
+
+    public final float[] scores;
+
+    private TopK(int[] indices, float[] scores) {
+        this.indices = indices;
+        this.scores = scores;
+    }
+
+    public int size() {
+        return indices.length;
+    }
+
+    public static TopK select(float[] values, int k) {
+        return select(values, 0, values.length, k);
+    }
+
+    /**
+     * Selects the top K of {@code values[offset, offset + length)}. Returned indices
+     * are relative to {@code offset}.
+     */
+    public static TopK select(float[] values, int offset, int length, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        final int capacity = Math.min(k, length);
+        final int[] heapIndices = new int[capacity];
+        final float[] heapScores = new float[capacity];
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            final float score = values[offset + i];
+            if (score != score) {
+                continue;
+            }
+            if (size < capacity) {
+                heapIndices[size] = i;
+                heapScores[size] = score;
+                siftUp(heapIndices, heapScores, size);
+                size++;
+            } else if (score > heapScores[0]) {
+                heapIndices[0] = i;
+                heapScores[0] = score;
+                siftDown(heapIndices, heapScores, 0, size);
+            }
+        }
+
+        final int[] indices = new int[size];
+        final float[] scores = new float[size];
+        for (int i = size - 1; i >= 0; i--) {
+            indices[i] = heapIndices[0];
+            scores[i] = heapScores[0];
+            heapIndices[0] = heapIndices[i];
+            heapScores[0] = heapScores[i];
+            siftDown(heapIndices, heapScores, 0, i);
+        }
+        return new TopK(indices, scores);
+    }
+
+    private static boolean less(int[] indices, float[] scores, int a, int b) {
+        return scores[a] < scores[b] || (scores[a] == scores[b] && indices[a] > indices[b]);
+    }
+
+    private static void siftUp(int[] indices, float[] scores, int position) {
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            if (!less(indices, scores, position, parent)) {
+                break;
+            }
+            swap(indices, scores, position, parent);
+            position = parent;
+        }
+    }
+
+    private static void siftDown(int[] indices, float[] scores, int position, int size) {
+        while (true) {
+            final int left = 2 * position + 1;
+            if (left >= size) {
+                break;
+            }
+            int smallest = left;
+            final int right = left + 1;
+            if (right < size && less(indices, scores, right, left)) {
+                smallest = right;
+            }
+            if (!less(indices, scores, smallest, position)) {
+                break;
+            }
+            swap(indices, scores, position, smallest);
+            position = smallest;
+        }
+    }
+
+    private static void swap(int[] indices, float[] scores, int a, int b) {
+        final int index = indices[a];
+        indices[a] = indices[b];
+        indices[b] = index;
+        final float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
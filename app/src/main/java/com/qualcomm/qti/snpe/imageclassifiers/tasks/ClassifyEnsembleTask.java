@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.tasks;
+
+import android.app.Application;
+import android.graphics.Bitmap;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import com.qualcomm.qti.snpe.NeuralNetwork;
+import com.qualcomm.qti.snpe.imageclassifiers.ImageClassifiersApplication;
+import com.qualcomm.qti.snpe.imageclassifiers.Model;
+import com.qualcomm.qti.snpe.imageclassifiers.ModelExtractionService;
+import com.qualcomm.qti.snpe.imageclassifiers.ModelOverviewFragmentController;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.EnsembleClassifier;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.EnsembleWeightStore;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.ImageClassifier;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.NetworkCache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classifies an image with every available model and fuses the results.
+ */
+public class ClassifyEnsembleTask extends AsyncTask<Bitmap, Void, EnsembleClassifier.Result> {
+
+    private static final String LOG_TAG = ClassifyEnsembleTask.class.getSimpleName();
+
+    private final Application mApplication;
+
+    private final ModelOverviewFragmentController mController;
+
+    private final NeuralNetwork.Runtime mRuntime;
+
+    private final Bitmap mImage;
+
+    private final EnsembleClassifier.Fusion mFusion;
+
+    private final int mTopK;
+
+    /**
+     * References to the member networks, given back once the task is done or cancelled.
+     */
+    private final List<NeuralNetwork> mNetworks = new ArrayList<>();
+
+    private final NetworkCache mNetworkCache;
+
+    public ClassifyEnsembleTask(Application application,
+                                ModelOverviewFragmentController controller,
+                                NeuralNetwork.Runtime runtime, Bitmap image,
+                                EnsembleClassifier.Fusion fusion, int topK) {
+        mApplication = application;
+        mNetworkCache = ImageClassifiersApplication.from(application).getNetworkCache();
+        mController = controller;
+        mRuntime = runtime;
+        mImage = image;
+        mFusion = fusion;
+        mTopK = topK;
+    }
+
+    @Override
+    protected EnsembleClassifier.Result doInBackground(Bitmap... params) {
+        final File modelsRoot =
+            mApplication.getExternalFilesDir(ModelExtractionService.MODELS_ROOT_DIR);
+        if (modelsRoot == null) {
+            return null;
+        }
+        final ImageClassifiersApplication application =
+            ImageClassifiersApplication.from(mApplication);
+        try {
+            final EnsembleWeightStore weights = new EnsembleWeightStore(mApplication);
+            final List<EnsembleClassifier.Member> members = new ArrayList<>();
+            for (Model model : application.getModelCatalogue().load(modelsRoot)) {
+                if (isCancelled()) {
+                    return null;
+                }
+                final NeuralNetwork network =
+                    LoadNetworkTask.acquireNetwork(mApplication, model, mRuntime);
+                if (network == null) {
+                    Log.w(LOG_TAG, "Leaving out model " + model.name);
+                    continue;
+                }
+                mNetworks.add(network);
+                members.add(new EnsembleClassifier.Member(new ImageClassifier(
+                    mNetworkCache.getTensorPool(network), model, mRuntime.name()),
+                    weights.get(model)));
+            }
+            if (members.isEmpty()) {
+                return null;
+            }
+            return new EnsembleClassifier(members, mFusion,
+                application.getInferenceScheduler().getWorkerPool()).classify(mImage, mTopK);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    protected void onPostExecute(EnsembleClassifier.Result result) {
+        super.onPostExecute(result);
+        releaseNetworks();
+        if (result != null && result.labels.length > 0) {
+            mController.onEnsembleResult(result);
+        } else {
+            mController.onClassificationFailed();
+        }
+    }
+
+    @Override
+    protected void onCancelled(EnsembleClassifier.Result result) {
+        super.onCancelled(result);
+        releaseNetworks();
+    }
+
+    private void releaseNetworks() {
+        for (NeuralNetwork network : mNetworks) {
+            mNetworkCache.release(network);
+        }
+        mNetworks.clear();
+    }
+}
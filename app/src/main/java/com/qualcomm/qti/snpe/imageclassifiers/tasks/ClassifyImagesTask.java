@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.tasks;
+
+import android.os.AsyncTask;
+import android.util.Log;
+
+import com.qualcomm.qti.snpe.NeuralNetwork;
+import com.qualcomm.qti.snpe.imageclassifiers.Model;
+import com.qualcomm.qti.snpe.imageclassifiers.ModelOverviewFragmentController;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.ImageClassifier;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.ImagePipeline;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.NetworkCache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classifies a set of image files through an {@link ImagePipeline}, one network
+ * batch at a time, so only a few batches worth of decoded bitmaps are held in
+ * memory and decoding overlaps execution.
+ */
+public class ClassifyImagesTask extends AsyncTask<File, Void, List<String[]>> {
+
+    private static final String LOG_TAG = ClassifyImagesTask.class.getSimpleName();
+
+    private final NetworkCache mNetworkCache;
+
+    private final NeuralNetwork mNetwork;
+
+    private final ImagePipeline mPipeline;
+
+    private final File[] mImages;
+
+    private final ModelOverviewFragmentController mController;
+
+    /**
+     * Holds a reference to the network until the task is done or cancelled.
+     */
+    public ClassifyImagesTask(ModelOverviewFragmentController controller,
+                              NetworkCache networkCache, NeuralNetwork network,
+                              NeuralNetwork.Runtime runtime, File[] images, Model model,
+                              int topK) {
+        mController = controller;
+        mNetworkCache = networkCache;
+        mNetwork = networkCache.acquire(network);
+        mPipeline = new ImagePipeline(new ImageClassifier(networkCache.getTensorPool(network),
+            model, runtime.name()), topK);
+        mImages = images;
+    }
+
+    @Override
+    protected List<String[]> doInBackground(File... params) {
+        try {
+            final ImagePipeline.Result result = mPipeline.classify(mImages);
+            Log.i(LOG_TAG, "Pipeline: " + result.stats);
+            return result.labels;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final List<String[]> results = new ArrayList<>(mImages.length);
+            for (int i = 0; i < mImages.length; i++) {
+                results.add(new String[0]);
+            }
+            return results;
+        }
+    }
+
+    @Override
+    protected void onPostExecute(List<String[]> results) {
+        super.onPostExecute(results);
+        mNetworkCache.release(mNetwork);
+        mController.onBatchClassificationResult(mImages, results);
+    }
+
+    @Override
+    protected void onCancelled(List<String[]> results) {
+        super.onCancelled(results);
+        mNetworkCache.release(mNetwork);
+    }
+}
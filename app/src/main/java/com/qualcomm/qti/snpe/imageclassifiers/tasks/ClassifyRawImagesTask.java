@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.tasks;
+
+import android.os.AsyncTask;
+
+import com.qualcomm.qti.snpe.NeuralNetwork;
+import com.qualcomm.qti.snpe.imageclassifiers.Model;
+import com.qualcomm.qti.snpe.imageclassifiers.ModelOverviewFragmentController;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.ImageClassifier;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.NetworkCache;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Classifies preprocessed .raw input files, which are fed to the network as is.
+ */
+public class ClassifyRawImagesTask extends AsyncTask<File, Void, List<String[]>> {
+
+    private final NetworkCache mNetworkCache;
+
+    private final NeuralNetwork mNetwork;
+
+    private final ImageClassifier mClassifier;
+
+    private final File[] mRawImages;
+
+    private final int mTopK;
+
+    private final ModelOverviewFragmentController mController;
+
+    /**
+     * Holds a reference to the network until the task is done or cancelled.
+     */
+    public ClassifyRawImagesTask(ModelOverviewFragmentController controller,
+                                 NetworkCache networkCache, NeuralNetwork network,
+                                 NeuralNetwork.Runtime runtime, File[] rawImages,
+                                 Model model, int topK) {
+        mController = controller;
+        mNetworkCache = networkCache;
+        mNetwork = networkCache.acquire(network);
+        mClassifier = new ImageClassifier(networkCache.getTensorPool(network), model,
+            runtime.name());
+        mRawImages = rawImages;
+        mTopK = topK;
+    }
+
+    @Override
+    protected List<String[]> doInBackground(File... params) {
+        return mClassifier.classifyRaw(Arrays.asList(mRawImages), mTopK);
+    }
+
+    @Override
+    protected void onPostExecute(List<String[]> results) {
+        super.onPostExecute(results);
+        mNetworkCache.release(mNetwork);
+        mController.onBatchClassificationResult(mRawImages, results);
+    }
+
+    @Override
+    protected void onCancelled(List<String[]> results) {
+        super.onCancelled(results);
+        mNetworkCache.release(mNetwork);
+    }
+}
@@ -6,10 +6,12 @@
 package com.qualcomm.qti.snpe.imageclassifiers.tasks;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.AsyncTask;
 
+import com.qualcomm.qti.snpe.imageclassifiers.Model;
 import com.qualcomm.qti.snpe.imageclassifiers.ModelOverviewFragmentController;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.BitmapLoader;
+import com.qualcomm.qti.snpe.imageclassifiers.metrics.InferenceMetrics;
 
 import java.io.File;
 
@@ -19,14 +21,28 @@ public class LoadImageTask extends AsyncTask<File, Void, Bitmap> {
 
     private final File mImageFile;
 
-    public LoadImageTask(ModelOverviewFragmentController controller, final File imageFile) {
+    private final Model mModel;
+
+    private final int mWidth;
+
+    private final int mHeight;
+
+    public LoadImageTask(ModelOverviewFragmentController controller, final Model model,
+                         final File imageFile, int width, int height) {
         mController = controller;
+        mModel = model;
         mImageFile = imageFile;
+        mWidth = width;
+        mHeight = height;
     }
 
     @Override
     protected Bitmap doInBackground(File... params) {
-        return BitmapFactory.decodeFile(mImageFile.getAbsolutePath());
+        final long start = System.nanoTime();
+        final Bitmap bitmap = BitmapLoader.decode(mImageFile, mWidth, mHeight);
+        InferenceMetrics.getInstance().record(mModel.name, InferenceMetrics.ANY_RUNTIME,
+            InferenceMetrics.Stage.DECODE, System.nanoTime() - start);
+        return bitmap;
     }
 
     @Override
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.tasks;
+
+import android.app.Application;
+import android.os.AsyncTask;
+
+import com.qualcomm.qti.snpe.imageclassifiers.ImageClassifiersApplication;
+import com.qualcomm.qti.snpe.imageclassifiers.Model;
+import com.qualcomm.qti.snpe.imageclassifiers.ModelOverviewFragment;
+
+/**
+ * Resolves a model by name through the model catalogue, which reads the file system
+ * and may wait for a catalogue load in progress.
+ */
+public class LoadModelTask extends AsyncTask<Void, Void, Model> {
+
+    private final Application mApplication;
+
+    private final ModelOverviewFragment mFragment;
+
+    private final String mModelName;
+
+    public LoadModelTask(Application application, ModelOverviewFragment fragment,
+                         String modelName) {
+        mApplication = application;
+        mFragment = fragment;
+        mModelName = modelName;
+    }
+
+    @Override
+    protected Model doInBackground(Void... params) {
+        return ImageClassifiersApplication.from(mApplication).getModel(mModelName);
+    }
+
+    @Override
+    protected void onPostExecute(Model model) {
+        super.onPostExecute(model);
+        mFragment.onModelLoaded(model);
+    }
+}
@@ -11,8 +11,13 @@ import android.util.Log;
 
 import com.qualcomm.qti.snpe.NeuralNetwork;
 import com.qualcomm.qti.snpe.SNPE;
+import com.qualcomm.qti.snpe.imageclassifiers.ImageClassifiersApplication;
 import com.qualcomm.qti.snpe.imageclassifiers.Model;
 import com.qualcomm.qti.snpe.imageclassifiers.ModelOverviewFragmentController;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.ImageClassifier;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.NetworkCache;
+import com.qualcomm.qti.snpe.imageclassifiers.metrics.InferenceMetrics;
+import com.qualcomm.qti.snpe.imageclassifiers.metrics.LatencyHistogram;
 
 import java.io.File;
 import java.io.IOException;
@@ -29,30 +34,98 @@ public class LoadNetworkTask extends AsyncTask<File, Void, NeuralNetwork> {
 
     private final NeuralNetwork.Runtime mTargetRuntime;
 
+    private final int mWarmUpRuns;
+
+    /**
+     * @param warmUpRuns executions run on a freshly built network before it is
+     *                   reported as loaded, 0 for none.
+     */
     public LoadNetworkTask(final Application application,
                            final ModelOverviewFragmentController controller,
-                           final Model model, NeuralNetwork.Runtime targetRuntime) {
+                           final Model model, NeuralNetwork.Runtime targetRuntime,
+                           int warmUpRuns) {
         mApplication = application;
         mController = controller;
         mModel = model;
         mTargetRuntime = targetRuntime;
+        mWarmUpRuns = warmUpRuns;
     }
 
     @Override
     protected NeuralNetwork doInBackground(File... params) {
-        NeuralNetwork network = null;
+        return acquireNetwork(mApplication, mModel, mTargetRuntime, mWarmUpRuns);
+    }
+
+    /**
+     * Returns a cached network for the model and runtime, building and caching it if
+     * needed, or null if it could not be built. The network must be given back to
+     * the application {@link NetworkCache}.
+     */
+    static NeuralNetwork acquireNetwork(Application application, Model model,
+                                        NeuralNetwork.Runtime runtime) {
+        return acquireNetwork(application, model, runtime, 0);
+    }
+
+    /**
+     * Like {@link #acquireNetwork(Application, Model, NeuralNetwork.Runtime)}, warming
+     * up a freshly built network with {@link ImageClassifier#warmUp(int)}. Cached
+     * networks have run before and are returned as is.
+     */
+    static NeuralNetwork acquireNetwork(Application application, Model model,
+                                        NeuralNetwork.Runtime runtime, int warmUpRuns) {
+        final NetworkCache cache = ImageClassifiersApplication.from(application).getNetworkCache();
+        NeuralNetwork network = cache.acquire(model.file, runtime);
+        if (network != null) {
+            return network;
+        }
         try {
-            final SNPE.NeuralNetworkBuilder builder = new SNPE.NeuralNetworkBuilder(mApplication)
+            final SNPE.NeuralNetworkBuilder builder = new SNPE.NeuralNetworkBuilder(application)
                     .setDebugEnabled(false)
-                    .setRuntimeOrder(mTargetRuntime)
-                    .setModel(mModel.file);
-            network = builder.build();
+                    .setRuntimeOrder(runtime)
+                    .setModel(model.file);
+            final long start = System.nanoTime();
+            final NeuralNetwork built = builder.build();
+            InferenceMetrics.getInstance().record(model.name, runtime.name(),
+                InferenceMetrics.Stage.NETWORK_BUILD, System.nanoTime() - start);
+            if (built != null) {
+                network = cache.put(model.file, runtime, built);
+            }
         } catch (IllegalStateException | IOException e) {
             Log.e(LOG_TAG, e.getMessage(), e);
         }
+        if (network != null && warmUpRuns > 0) {
+            warmUp(cache, network, model, runtime.name(), warmUpRuns);
+        }
         return network;
     }
 
+    private static void warmUp(NetworkCache cache, NeuralNetwork network, Model model,
+                               String runtime, int runs) {
+        try {
+            new ImageClassifier(cache.getTensorPool(network), model, runtime).warmUp(runs);
+        } catch (RuntimeException e) {
+            // The network stays usable, classifications report their own failures.
+            Log.w(LOG_TAG, "Warm-up failed for " + model.name + " on " + runtime, e);
+            return;
+        }
+        final InferenceMetrics metrics = InferenceMetrics.getInstance();
+        final LatencyHistogram first = metrics.histogram(model.name, runtime,
+            InferenceMetrics.Stage.FIRST_EXECUTE);
+        final LatencyHistogram warm = metrics.histogram(model.name, runtime,
+            InferenceMetrics.Stage.WARM_EXECUTE);
+        Log.i(LOG_TAG, model.name + " on " + runtime + " first execution: " + first.snapshot()
+            + ", warm: " + warm.snapshot());
+    }
+
+    @Override
+    protected void onCancelled(NeuralNetwork neuralNetwork) {
+        super.onCancelled(neuralNetwork);
+        if (neuralNetwork != null) {
+            ImageClassifiersApplication.from(mApplication).getNetworkCache()
+                .release(neuralNetwork);
+        }
+    }
+
     @Override
     protected void onPostExecute(NeuralNetwork neuralNetwork) {
         super.onPostExecute(neuralNetwork);
@@ -60,7 +133,8 @@ public class LoadNetworkTask extends AsyncTask<File, Void, NeuralNetwork> {
             if (!isCancelled()) {
                 mController.onNetworkLoaded(neuralNetwork);
             } else {
-                neuralNetwork.release();
+                ImageClassifiersApplication.from(mApplication).getNetworkCache()
+                    .release(neuralNetwork);
             }
         } else {
             if (!isCancelled()) {
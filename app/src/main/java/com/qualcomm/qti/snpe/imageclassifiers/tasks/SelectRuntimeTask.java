@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.tasks;
+
+import android.app.Application;
+import android.graphics.Bitmap;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import com.qualcomm.qti.snpe.NeuralNetwork;
+import com.qualcomm.qti.snpe.imageclassifiers.ImageClassifiersApplication;
+import com.qualcomm.qti.snpe.imageclassifiers.Model;
+import com.qualcomm.qti.snpe.imageclassifiers.ModelOverviewFragmentController;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.BitmapLoader;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.ImageClassifier;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.NetworkCache;
+import com.qualcomm.qti.snpe.imageclassifiers.inference.RuntimeBenchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks the candidate runtimes on the model sample images and reports the one
+ * with the lowest p95 latency.
+ */
+public class SelectRuntimeTask extends AsyncTask<Void, Void, NeuralNetwork.Runtime> {
+
+    private static final String LOG_TAG = SelectRuntimeTask.class.getSimpleName();
+
+    private static final int MAX_SAMPLE_IMAGES = 3;
+
+    private final ModelOverviewFragmentController mController;
+
+    private final Application mApplication;
+
+    private final Model mModel;
+
+    private final List<NeuralNetwork.Runtime> mCandidates;
+
+    public SelectRuntimeTask(final Application application,
+                             final ModelOverviewFragmentController controller,
+                             final Model model, List<NeuralNetwork.Runtime> candidates) {
+        mApplication = application;
+        mController = controller;
+        mModel = model;
+        mCandidates = candidates;
+    }
+
+    @Override
+    protected NeuralNetwork.Runtime doInBackground(Void... params) {
+        final List<Bitmap> samples = new ArrayList<>();
+        for (int i = 0; i < mModel.jpgImages.length && samples.size() < MAX_SAMPLE_IMAGES; i++) {
+            final Bitmap bitmap = BitmapLoader.decode(mModel.jpgImages[i],
+                BitmapLoader.DEFAULT_SIZE, BitmapLoader.DEFAULT_SIZE);
+            if (bitmap != null) {
+                samples.add(bitmap);
+            }
+        }
+        if (samples.isEmpty()) {
+            return null;
+        }
+
+        final NetworkCache cache = ImageClassifiersApplication.from(mApplication).getNetworkCache();
+        final RuntimeBenchmark<NeuralNetwork.Runtime> benchmark = new RuntimeBenchmark<>();
+        final RuntimeBenchmark.Result<NeuralNetwork.Runtime> result = benchmark.select(mCandidates,
+            new RuntimeBenchmark.Engine<NeuralNetwork.Runtime>() {
+                @Override
+                public RuntimeBenchmark.Session open(NeuralNetwork.Runtime runtime) {
+                    final NeuralNetwork network =
+                        LoadNetworkTask.acquireNetwork(mApplication, mModel, runtime);
+                    if (network == null) {
+                        throw new IllegalStateException("Unable to build network for " + runtime);
+                    }
+                    return new ClassifierSession(cache, network, new ImageClassifier(
+                        cache.getTensorPool(network), mModel, runtime.name()), samples);
+                }
+            });
+        if (result != null) {
+            Log.i(LOG_TAG, "Selected runtime " + result);
+            return result.runtime;
+        }
+        return null;
+    }
+
+    @Override
+    protected void onPostExecute(NeuralNetwork.Runtime runtime) {
+        super.onPostExecute(runtime);
+        if (runtime != null) {
+            mController.onRuntimeSelected(runtime);
+        } else {
+            mController.onRuntimeSelectionFailed();
+        }
+    }
+
+    private static final class ClassifierSession implements RuntimeBenchmark.Session {
+
+        private final NetworkCache mCache;
+
+        private final NeuralNetwork mNetwork;
+
+        private final ImageClassifier mClassifier;
+
+        private final List<Bitmap> mSamples;
+
+        private int mNext;
+
+        ClassifierSession(NetworkCache cache, NeuralNetwork network, ImageClassifier classifier,
+                          List<Bitmap> samples) {
+            mCache = cache;
+            mNetwork = network;
+            mClassifier = classifier;
+            mSamples = samples;
+        }
+
+        @Override
+        public void run() {
+            final Bitmap sample = mSamples.get(mNext++ % mSamples.size());
+            if (mClassifier.classify(sample, 1).length == 0) {
+                throw new IllegalStateException("Classification failed.");
+            }
+        }
+
+        @Override
+        public void close() {
+            mCache.release(mNetwork);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.benchmark;
+
+import com.qualcomm.qti.snpe.imageclassifiers.engine.InferenceEngine;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.ReferenceEngine;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.Tensor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reference engine executions: a dense layer over an AlexNet sized input, and a
+ * simulated 5 ms offloaded runtime shared by several threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    static final int[] INPUT_SHAPE = {1, 227, 227, 3};
+
+    static final int CLASSES = 10;
+
+    @State(Scope.Benchmark)
+    public static class Engines {
+
+        InferenceEngine dense;
+
+        InferenceEngine simulated;
+
+        @Setup
+        public void setUp() {
+            final Random random = new Random(42);
+            final int inputSize = 227 * 227 * 3;
+            final float[] weights = new float[inputSize * CLASSES];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = random.nextFloat() - 0.5f;
+            }
+            dense = new ReferenceEngine.Builder()
+                .setInput(ReferenceEngine.DEFAULT_INPUT_LAYER, INPUT_SHAPE)
+                .setOutput(ReferenceEngine.DEFAULT_OUTPUT_LAYER, CLASSES)
+                .setWeights(weights, new float[CLASSES])
+                .build();
+            simulated = new ReferenceEngine.Builder()
+                .setInput(ReferenceEngine.DEFAULT_INPUT_LAYER, INPUT_SHAPE)
+                .setOutput(ReferenceEngine.DEFAULT_OUTPUT_LAYER, CLASSES)
+                .setLatency(5, 0, TimeUnit.MILLISECONDS, false)
+                .build();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Inputs {
+
+        Map<String, Tensor> dense = new HashMap<>();
+
+        Map<String, Tensor> simulated = new HashMap<>();
+
+        @Setup(Level.Trial)
+        public void setUp(Engines engines) {
+            dense.put(ReferenceEngine.DEFAULT_INPUT_LAYER,
+                engines.dense.createTensor(INPUT_SHAPE));
+            simulated.put(ReferenceEngine.DEFAULT_INPUT_LAYER,
+                engines.simulated.createTensor(INPUT_SHAPE));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            dense.get(ReferenceEngine.DEFAULT_INPUT_LAYER).release();
+            simulated.get(ReferenceEngine.DEFAULT_INPUT_LAYER).release();
+        }
+    }
+
+    @Benchmark
+    public Map<String, Tensor> dense(Engines engines, Inputs inputs) {
+        return engines.dense.execute(inputs.dense);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Map<String, Tensor> simulatedOffload(Engines engines, Inputs inputs) {
+        return engines.simulated.execute(inputs.simulated);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.benchmark;
+
+import com.qualcomm.qti.snpe.imageclassifiers.processing.LabelTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a 1000 entry labels file, and looking up a label as a classification
+ * result does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelsBenchmark {
+
+    private File mLabelsFile;
+
+    private LabelTable mLabels;
+
+    @Setup
+    public void setUp() throws IOException {
+        mLabelsFile = File.createTempFile("labels", ".txt");
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(mLabelsFile), "UTF-8");
+        try {
+            for (int i = 0; i < TopKBenchmark.CLASSES; i++) {
+                writer.write("n" + (1440764 + i) + " label number " + i + ", synonym\n");
+            }
+        } finally {
+            writer.close();
+        }
+        mLabels = LabelTable.load(mLabelsFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mLabelsFile.delete();
+    }
+
+    @Benchmark
+    public Object load() throws IOException {
+        return LabelTable.load(mLabelsFile);
+    }
+
+    @Benchmark
+    public String get() {
+        return mLabels.get(TopKBenchmark.CLASSES / 2);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.benchmark;
+
+import com.qualcomm.qti.snpe.imageclassifiers.processing.ModelArchiveExtractor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Extracting a model archive laid out like the bundled alexnet.zip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ModelExtractionBenchmark {
+
+    private static final int SAMPLE_IMAGES = 5;
+
+    private static final int SAMPLE_IMAGE_SIZE = 64 * 1024;
+
+    private static final int MEAN_IMAGE_SIZE = 227 * 227 * 3 * 4;
+
+    @Param({"32"})
+    public int modelSizeMb;
+
+    private File mArchive;
+
+    private File mTarget;
+
+    @Setup(Level.Trial)
+    public void createArchive() throws IOException {
+        final Random random = new Random(42);
+        mArchive = File.createTempFile("model", ".zip");
+        final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(mArchive));
+        try {
+            writeEntry(zip, "model.dlc", random, modelSizeMb * 1024 * 1024);
+            writeEntry(zip, "mean_image.bin", random, MEAN_IMAGE_SIZE);
+            writeEntry(zip, "labels.txt", random, 32 * 1024);
+            zip.putNextEntry(new ZipEntry("images/"));
+            zip.closeEntry();
+            for (int i = 0; i < SAMPLE_IMAGES; i++) {
+                writeEntry(zip, "images/sample" + i + ".jpg", random, SAMPLE_IMAGE_SIZE);
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createTarget() throws IOException {
+        mTarget = File.createTempFile("model", "");
+        if (!mTarget.delete()) {
+            throw new IOException("Unable to create " + mTarget);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteTarget() {
+        delete(mTarget);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteArchive() {
+        mArchive.delete();
+    }
+
+    @Benchmark
+    public File extract() throws IOException {
+        ModelArchiveExtractor.extract(mArchive, mTarget);
+        return mTarget;
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String name, Random random, int size)
+        throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        final byte[] chunk = new byte[64 * 1024];
+        for (int written = 0; written < size; written += chunk.length) {
+            random.nextBytes(chunk);
+            zip.write(chunk, 0, Math.min(chunk.length, size - written));
+        }
+        zip.closeEntry();
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
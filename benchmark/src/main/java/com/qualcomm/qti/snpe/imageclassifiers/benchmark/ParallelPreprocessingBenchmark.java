@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.benchmark;
+
+import com.qualcomm.qti.snpe.imageclassifiers.processing.ParallelPixelConverter;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.PixelConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RGB conversion split into row bands, by input size and thread count, to place
+ * {@link ParallelPixelConverter#DEFAULT_MIN_PARALLEL_PIXELS}. Sources are 4:3 and
+ * resized and cropped on the way.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelPreprocessingBenchmark {
+
+    @Param({"227", "320", "512", "1024"})
+    public int size;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private ParallelPixelConverter mConverter;
+
+    private int[] mPixels;
+
+    private int mSourceWidth;
+
+    private int mSourceHeight;
+
+    private float[] mMean;
+
+    private float[] mOut;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        mConverter = new ParallelPixelConverter(threads, 0);
+        mSourceWidth = size * 4 / 3;
+        mSourceHeight = size;
+        mPixels = new int[mSourceWidth * mSourceHeight];
+        for (int i = 0; i < mPixels.length; i++) {
+            mPixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        mMean = new float[size * size * PixelConverter.RGB_CHANNELS];
+        for (int i = 0; i < mMean.length; i++) {
+            mMean[i] = random.nextFloat() * 255.f;
+        }
+        mOut = new float[mMean.length];
+    }
+
+    @Benchmark
+    public float[] rgbResizeCrop() {
+        mConverter.toFloat(mPixels, mSourceWidth, mSourceHeight, PixelConverter.RGB_CHANNELS,
+            size, size, mMean, 0, mOut, 0);
+        return mOut;
+    }
+}
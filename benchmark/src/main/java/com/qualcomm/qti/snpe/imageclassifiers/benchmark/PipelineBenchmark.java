@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.benchmark;
+
+import com.qualcomm.qti.snpe.imageclassifiers.engine.InferenceEngine;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.ReferenceEngine;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.Tensor;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.TensorPool;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.PixelConverter;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.StagedPipeline;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.TopK;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A sequence of 4:3 images resized, cropped and converted to an AlexNet sized input
+ * and executed on a reference engine simulating a 5 ms offloaded runtime, one after
+ * the other and through a {@link StagedPipeline} overlapping conversion with execution.
+ *
+ * The pipelined run lays out its stages and input tensors like the app's ImagePipeline,
+ * which itself needs Android bitmaps: pooled tensors circulate through a queue, one
+ * being written, one queued and one executing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    static final int IMAGES = 16;
+
+    static final int SIZE = 227;
+
+    static final int SOURCE_WIDTH = 400;
+
+    static final int SOURCE_HEIGHT = 300;
+
+    static final int[] INPUT_SHAPE = {1, SIZE, SIZE, PixelConverter.RGB_CHANNELS};
+
+    static final int QUEUE_CAPACITY = 2;
+
+    static final int TENSOR_COUNT = QUEUE_CAPACITY + 1;
+
+    private InferenceEngine mEngine;
+
+    private TensorPool mPool;
+
+    private List<int[]> mImages;
+
+    private float[] mMean;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        mEngine = new ReferenceEngine.Builder()
+            .setInput(ReferenceEngine.DEFAULT_INPUT_LAYER, INPUT_SHAPE)
+            .setOutput(ReferenceEngine.DEFAULT_OUTPUT_LAYER, 1000)
+            .setLatency(5, 0, TimeUnit.MILLISECONDS, false)
+            .build();
+        mPool = new TensorPool(mEngine, ReferenceEngine.DEFAULT_INPUT_LAYER, TENSOR_COUNT);
+        mImages = new ArrayList<>(IMAGES);
+        for (int i = 0; i < IMAGES; i++) {
+            final int[] pixels = new int[SOURCE_WIDTH * SOURCE_HEIGHT];
+            for (int p = 0; p < pixels.length; p++) {
+                pixels[p] = 0xFF000000 | random.nextInt(0x1000000);
+            }
+            mImages.add(pixels);
+        }
+        mMean = new float[SIZE * SIZE * PixelConverter.RGB_CHANNELS];
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPool.release();
+    }
+
+    @Benchmark
+    public int serial() {
+        final TensorPool.Lease lease = mPool.lease();
+        final float[] floats = new float[lease.tensor.getSize()];
+        int sum = 0;
+        try {
+            for (int[] image : mImages) {
+                convert(image, floats);
+                lease.tensor.write(floats, 0, floats.length);
+                sum += TopK.select(execute(lease), 1).indices[0];
+            }
+        } finally {
+            mPool.giveBack(lease);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int pipelined() throws InterruptedException {
+        final BlockingQueue<TensorPool.Lease> leases = new ArrayBlockingQueue<>(TENSOR_COUNT);
+        final List<TensorPool.Lease> leased = new ArrayList<>(TENSOR_COUNT);
+        try {
+            for (int i = 0; i < TENSOR_COUNT; i++) {
+                final TensorPool.Lease lease = mPool.lease();
+                leased.add(lease);
+                leases.add(lease);
+            }
+            int sum = 0;
+            for (Integer top : build(leases).run(mImages).outputs) {
+                sum += top;
+            }
+            return sum;
+        } finally {
+            for (TensorPool.Lease lease : leased) {
+                mPool.giveBack(lease);
+            }
+        }
+    }
+
+    private StagedPipeline<int[], Integer> build(final BlockingQueue<TensorPool.Lease> leases) {
+        return StagedPipeline.Builder.<int[]>create(QUEUE_CAPACITY)
+            .then("preprocess", new StagedPipeline.Stage<int[], TensorPool.Lease>() {
+                @Override
+                public TensorPool.Lease process(int[] image) throws InterruptedException {
+                    final TensorPool.Lease lease = leases.take();
+                    final float[] floats = new float[lease.tensor.getSize()];
+                    convert(image, floats);
+                    lease.tensor.write(floats, 0, floats.length);
+                    return lease;
+                }
+            })
+            .then("execute", new StagedPipeline.Stage<TensorPool.Lease, float[]>() {
+                @Override
+                public float[] process(TensorPool.Lease lease) {
+                    try {
+                        return execute(lease);
+                    } finally {
+                        leases.add(lease);
+                    }
+                }
+            })
+            .then("top-k", new StagedPipeline.Stage<float[], Integer>() {
+                @Override
+                public Integer process(float[] scores) {
+                    return TopK.select(scores, 1).indices[0];
+                }
+            })
+            .build();
+    }
+
+    private void convert(int[] image, float[] floats) {
+        PixelConverter.resizeCropToFloat(image, SOURCE_WIDTH, SOURCE_HEIGHT,
+            PixelConverter.RGB_CHANNELS, SIZE, SIZE, mMean, 0, floats, 0);
+    }
+
+    private float[] execute(TensorPool.Lease lease) {
+        final Tensor output =
+            mEngine.execute(lease.inputs).get(ReferenceEngine.DEFAULT_OUTPUT_LAYER);
+        final float[] scores = new float[output.getSize()];
+        output.read(scores, 0, scores.length);
+        return scores;
+    }
+}
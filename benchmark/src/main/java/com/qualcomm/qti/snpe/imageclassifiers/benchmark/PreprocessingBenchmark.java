@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.benchmark;
+
+import com.qualcomm.qti.snpe.imageclassifiers.processing.PixelConverter;
+import com.qualcomm.qti.snpe.imageclassifiers.processing.PixelHash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pixel to float conversion with mean subtraction for an AlexNet sized input, from
+ * a matching image and from a 4:3 image that is resized and cropped on the way,
+ * against the pixel hash that keys cached results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreprocessingBenchmark {
+
+    static final int WIDTH = 227;
+
+    static final int HEIGHT = 227;
+
+    static final int SOURCE_WIDTH = 400;
+
+    static final int SOURCE_HEIGHT = 300;
+
+    private int[] mPixels;
+
+    private int[] mSourcePixels;
+
+    private float[] mRgbMean;
+
+    private float[] mRgbOut;
+
+    private float[] mGrayscaleMean;
+
+    private float[] mGrayscaleOut;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        mPixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < mPixels.length; i++) {
+            mPixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        mSourcePixels = new int[SOURCE_WIDTH * SOURCE_HEIGHT];
+        for (int i = 0; i < mSourcePixels.length; i++) {
+            mSourcePixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        mRgbMean = randomFloats(random, WIDTH * HEIGHT * PixelConverter.RGB_CHANNELS);
+        mRgbOut = new float[mRgbMean.length];
+        mGrayscaleMean = randomFloats(random, WIDTH * HEIGHT * PixelConverter.GRAYSCALE_CHANNELS);
+        mGrayscaleOut = new float[mGrayscaleMean.length];
+    }
+
+    @Benchmark
+    public float[] rgb() {
+        PixelConverter.rgbToFloat(mPixels, 0, mPixels.length, mRgbMean, 0, mRgbOut, 0);
+        return mRgbOut;
+    }
+
+    @Benchmark
+    public float[] grayscale() {
+        PixelConverter.grayscaleToFloat(mPixels, 0, mPixels.length, mGrayscaleMean, 0,
+            mGrayscaleOut, 0);
+        return mGrayscaleOut;
+    }
+
+    @Benchmark
+    public float[] rgbResizeCrop() {
+        PixelConverter.resizeCropToFloat(mSourcePixels, SOURCE_WIDTH, SOURCE_HEIGHT,
+            PixelConverter.RGB_CHANNELS, WIDTH, HEIGHT, mRgbMean, 0, mRgbOut, 0);
+        return mRgbOut;
+    }
+
+    @Benchmark
+    public float[] grayscaleResizeCrop() {
+        PixelConverter.resizeCropToFloat(mSourcePixels, SOURCE_WIDTH, SOURCE_HEIGHT,
+            PixelConverter.GRAYSCALE_CHANNELS, WIDTH, HEIGHT, mGrayscaleMean, 0,
+            mGrayscaleOut, 0);
+        return mGrayscaleOut;
+    }
+
+    @Benchmark
+    public long pixelHash() {
+        return PixelHash.hash(mPixels, WIDTH, HEIGHT);
+    }
+
+    private static float[] randomFloats(Random random, int size) {
+        final float[] floats = new float[size];
+        for (int i = 0; i < size; i++) {
+            floats[i] = random.nextFloat() * 255.f;
+        }
+        return floats;
+    }
+}
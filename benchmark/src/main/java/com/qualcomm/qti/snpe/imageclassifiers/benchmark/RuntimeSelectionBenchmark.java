@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.benchmark;
+
+import com.qualcomm.qti.snpe.imageclassifiers.inference.RuntimeBenchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Automatic runtime selection against stand-in runtimes: one fast on average with a
+ * slow tail, one steady but slower on average and one failing to open.
+ *
+ * The setup checks that the steady runtime is picked, as the selection goes by p95
+ * rather than average latency, and fails the run otherwise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class RuntimeSelectionBenchmark {
+
+    static final String SPIKY = "spiky";
+
+    static final String STEADY = "steady";
+
+    static final String BROKEN = "broken";
+
+    /**
+     * The spiky runtime runs in 100 us, but every tenth run takes 3 ms.
+     */
+    static final long SPIKY_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    static final long SPIKE_NANOS = TimeUnit.MILLISECONDS.toNanos(3);
+
+    static final long STEADY_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    private final List<String> mRuntimes = Arrays.asList(SPIKY, STEADY, BROKEN);
+
+    private final RuntimeBenchmark<String> mBenchmark = new RuntimeBenchmark<>();
+
+    private final RuntimeBenchmark.Engine<String> mEngine =
+        new RuntimeBenchmark.Engine<String>() {
+            @Override
+            public RuntimeBenchmark.Session open(String runtime) throws Exception {
+                if (BROKEN.equals(runtime)) {
+                    throw new UnsupportedOperationException("Runtime not available.");
+                }
+                return new FakeSession(SPIKY.equals(runtime));
+            }
+        };
+
+    @Setup
+    public void checkSelection() {
+        final RuntimeBenchmark.Result<String> result = mBenchmark.select(mRuntimes, mEngine);
+        if (result == null || !STEADY.equals(result.runtime)) {
+            throw new IllegalStateException("Expected " + STEADY + " by p95, picked " + result);
+        }
+        final RuntimeBenchmark.Result<String> spiky = mBenchmark.measure(SPIKY, mEngine);
+        if (spiky.p50Nanos >= result.p50Nanos || spiky.p95Nanos <= result.p95Nanos) {
+            throw new IllegalStateException("Expected a lower p50 and a higher p95 for "
+                + SPIKY + ", measured " + spiky + " against " + result);
+        }
+    }
+
+    @Benchmark
+    public RuntimeBenchmark.Result<String> select() {
+        return mBenchmark.select(mRuntimes, mEngine);
+    }
+
+    private static final class FakeSession implements RuntimeBenchmark.Session {
+
+        private final boolean mSpiky;
+
+        private int mRuns;
+
+        FakeSession(boolean spiky) {
+            mSpiky = spiky;
+        }
+
+        @Override
+        public void run() {
+            mRuns++;
+            final long nanos;
+            if (mSpiky) {
+                nanos = (mRuns % 10 == 0) ? SPIKE_NANOS : SPIKY_NANOS;
+            } else {
+                nanos = STEADY_NANOS;
+            }
+            final long end = System.nanoTime() + nanos;
+            while (System.nanoTime() < end) {
+                // Spins rather than sleeps, sleeps overshoot by far more than 100 us.
+            }
+        }
+
+        @Override
+        public void close() {}
+    }
+}
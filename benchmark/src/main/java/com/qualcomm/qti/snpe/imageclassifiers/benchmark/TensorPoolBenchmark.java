@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.benchmark;
+
+import com.qualcomm.qti.snpe.imageclassifiers.engine.InferenceEngine;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.ReferenceEngine;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.Tensor;
+import com.qualcomm.qti.snpe.imageclassifiers.engine.TensorPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getting an AlexNet sized input tensor and its input map for one inference, created
+ * and released each time or leased from a {@link TensorPool}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TensorPoolBenchmark {
+
+    static final int[] INPUT_SHAPE = {1, 227, 227, 3};
+
+    private InferenceEngine mEngine;
+
+    private TensorPool mPool;
+
+    private float[] mImage;
+
+    @Setup
+    public void setUp() {
+        mEngine = new ReferenceEngine.Builder()
+            .setInput(ReferenceEngine.DEFAULT_INPUT_LAYER, INPUT_SHAPE)
+            .setOutput(ReferenceEngine.DEFAULT_OUTPUT_LAYER, 10)
+            .build();
+        mPool = new TensorPool(mEngine, ReferenceEngine.DEFAULT_INPUT_LAYER, 4);
+        mImage = new float[227 * 227 * 3];
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPool.release();
+    }
+
+    @Benchmark
+    public int created() {
+        final Tensor tensor = mEngine.createTensor(INPUT_SHAPE);
+        try {
+            tensor.write(mImage, 0, mImage.length);
+            final Map<String, Tensor> inputs = new HashMap<>();
+            inputs.put(ReferenceEngine.DEFAULT_INPUT_LAYER, tensor);
+            return inputs.size();
+        } finally {
+            tensor.release();
+        }
+    }
+
+    @Benchmark
+    public int leased() {
+        final TensorPool.Lease lease = mPool.lease();
+        try {
+            lease.tensor.write(mImage, 0, mImage.length);
+            return lease.inputs.size();
+        } finally {
+            mPool.giveBack(lease);
+        }
+    }
+}
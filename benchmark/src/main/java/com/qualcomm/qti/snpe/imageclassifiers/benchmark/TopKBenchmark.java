@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2016 Qualcomm Technologies, Inc.
+ * All Rights Reserved.
+ * Confidential and Proprietary - Qualcomm Technologies, Inc.
+ */
+package com.qualcomm.qti.snpe.imageclassifiers.benchmark;
+
+import com.qualcomm.qti.snpe.imageclassifiers.processing.TopK;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-K selection over an ImageNet sized softmax output.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopKBenchmark {
+
+    static final int CLASSES = 1000;
+
+    @Param({"1", "5"})
+    public int k;
+
+    private float[] mScores;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        mScores = new float[CLASSES];
+        float sum = 0;
+        for (int i = 0; i < mScores.length; i++) {
+            mScores[i] = random.nextFloat();
+            sum += mScores[i];
+        }
+        for (int i = 0; i < mScores.length; i++) {
+            mScores[i] /= sum;
+        }
+    }
+
+    @Benchmark
+    public TopK select() {
+        return TopK.select(mScores, k);
+    }
+}